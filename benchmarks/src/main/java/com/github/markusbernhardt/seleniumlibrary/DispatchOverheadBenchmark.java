@@ -0,0 +1,103 @@
+package com.github.markusbernhardt.seleniumlibrary;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.markusbernhardt.seleniumlibrary.keywords.RunOnFailure;
+
+/**
+ * Per-keyword overhead of {@link SeleniumLibrary#dispatch}, which tracks the
+ * keyword depth, buffers the log and triggers the run-on-failure keyword.
+ * The direct variants call the same keyword without the dispatcher, so the
+ * difference is the cost of the dispatch. Each keyword calls a number of
+ * helper methods. The failing variants let every helper throw an exception
+ * that the keyword catches, like the checks polled by the Wait ... keywords.
+ * The number of triggered runs is consumed along with the result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchOverheadBenchmark {
+
+    /**
+     * Calls of helper methods per keyword
+     */
+    @Param({ "1", "5", "20" })
+    public int helperCalls;
+
+    private SeleniumLibrary library;
+
+    private int triggered;
+
+    private int value;
+
+    @Setup
+    public void setup() {
+        library = new SeleniumLibrary();
+        library.rof = new RunOnFailure() {
+
+            @Override
+            public void runOnFailure() {
+                triggered++;
+            }
+        };
+    }
+
+    @Benchmark
+    public long directPassing() {
+        return keyword(false);
+    }
+
+    @Benchmark
+    public long dispatcherPassing() {
+        return (Integer) library.dispatch("Keyword", () -> keyword(false));
+    }
+
+    @Benchmark
+    public void directSwallowedFailures(Blackhole blackhole) {
+        triggered = 0;
+        blackhole.consume(keyword(true));
+        blackhole.consume(triggered);
+    }
+
+    @Benchmark
+    public void dispatcherSwallowedFailures(Blackhole blackhole) {
+        triggered = 0;
+        blackhole.consume(library.dispatch("Keyword", () -> keyword(true)));
+        blackhole.consume(triggered);
+    }
+
+    private int keyword(boolean failing) {
+        int result = 0;
+        for (int i = 0; i < helperCalls; i++) {
+            try {
+                result += helper(failing);
+            } catch (SeleniumLibraryNonFatalException e) {
+                result--;
+            }
+        }
+        return result;
+    }
+
+    private int helper(boolean failing) {
+        if (failing) {
+            throw new SeleniumLibraryNonFatalException("Element is not visible");
+        }
+        return value++ & 1;
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.markusbernhardt.seleniumlibrary;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+/**
+ * End-to-end latency of common keywords. The keywords are run through
+ * {@link SeleniumLibrary#runKeyword(String, List)} like Robot Framework does,
+ * once against a local HtmlUnitDriver and once against a
+ * {@link StubWebDriverServer}, which delays every remote command by the
+ * configured latency. For the remote target the number of WebDriver commands
+ * per keyword is reported, too, which is the figure that dominates keyword
+ * latency against a real grid.
+ * <p>
+ * This is no JMH benchmark, because a single keyword takes milliseconds and
+ * the interesting figures are percentiles. Run it with
+ * {@code java -cp benchmarks/target/benchmarks.jar com.github.markusbernhardt.seleniumlibrary.KeywordLatencyBenchmark [--iterations n] [--warmup n] [--latency ms]}.
+ */
+public class KeywordLatencyBenchmark {
+
+    protected static final String PAGE = "<html><head><title>Benchmark</title></head><body>"
+            + "<div id='visible'>Hello benchmark</div>"
+            + "<button id='button' onclick='this.innerHTML=\"Clicked\"'>Click me</button>"
+            + "<form id='form'><input type='text' name='q'/><input type='checkbox' id='terms'/>"
+            + "<select id='colors'><option>Red</option><option>Green</option><option>Blue</option></select></form>"
+            + "<table id='data'><tr><th>Name</th><th>Age</th></tr>"
+            + "<tr><td>Alice</td><td>30</td></tr><tr><td>Bob</td><td>40</td></tr></table>"
+            + "</body></html>";
+
+    protected static final Object[][] KEYWORDS = {
+            { "Page Should Contain", "Hello benchmark" },
+            { "Element Should Be Visible", "id:visible" },
+            { "Get Text", "id:visible" },
+            { "Click Element", "id:button" },
+            { "Input Text", "name:q", "robot" },
+            { "Textfield Value Should Be", "name:q", "robot" },
+            { "Select Checkbox", "id:terms" },
+            { "Checkbox Should Be Selected", "id:terms" },
+            { "Select From List By Label", "id:colors", "Green" },
+            { "Get Selected List Label", "id:colors" },
+            { "Get List Items", "id:colors" },
+            { "Get Table Cell", "data", 2, 1 },
+            { "Table Cell Should Contain", "data", 2, 1, "Alice" },
+            { "Table Should Contain", "data", "Bob" },
+            { "Wait Until Page Contains Element", "id:visible" },
+            { "Wait Until Element Is Visible", "id:visible" },
+    };
+
+    protected final int iterations;
+
+    protected final int warmup;
+
+    protected final StringBuilder report = new StringBuilder();
+
+    public KeywordLatencyBenchmark(int iterations, int warmup) {
+        this.iterations = iterations;
+        this.warmup = warmup;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = 200;
+        int warmup = 20;
+        long latency = 2;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "--iterations":
+                iterations = Integer.parseInt(args[i + 1]);
+                break;
+            case "--warmup":
+                warmup = Integer.parseInt(args[i + 1]);
+                break;
+            case "--latency":
+                latency = Long.parseLong(args[i + 1]);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        String url = "data:text/html;charset=utf-8," + URLEncoder.encode(PAGE, StandardCharsets.UTF_8).replace("+", "%20");
+        KeywordLatencyBenchmark benchmark = new KeywordLatencyBenchmark(iterations, warmup);
+
+        benchmark.run("HtmlUnit", null, url, null);
+
+        StubWebDriverServer server = new StubWebDriverServer(() -> new HtmlUnitDriver(true), latency);
+        server.start();
+        try {
+            benchmark.run(String.format("Stub server, %d ms latency", latency), server, url,
+                    server.getUrl().toString());
+        } finally {
+            server.stop();
+        }
+        System.out.print(benchmark.report);
+    }
+
+    protected void run(String target, StubWebDriverServer server, String url, String remoteUrl) {
+        SeleniumLibrary library = new SeleniumLibrary();
+        library.runKeyword("Set Library Log Level", args("WARN"));
+        library.runKeyword("Open Browser", args(url, "htmlunitwithjs", "None", remoteUrl == null ? "None" : remoteUrl));
+        try {
+            report.append(String.format(Locale.ROOT, "%n%s%n%-34s %10s %10s %10s%n", target, "Keyword", "p50 ms",
+                    "p99 ms", server != null ? "commands" : ""));
+            for (Object[] keyword : KEYWORDS) {
+                String name = (String) keyword[0];
+                List<Object> arguments = Arrays.asList(keyword).subList(1, keyword.length);
+                for (int i = 0; i < warmup; i++) {
+                    library.runKeyword(name, arguments);
+                }
+                long[] nanos = new long[iterations];
+                long commands = server != null ? server.getCommands() : 0;
+                for (int i = 0; i < iterations; i++) {
+                    long start = System.nanoTime();
+                    library.runKeyword(name, arguments);
+                    nanos[i] = System.nanoTime() - start;
+                }
+                Arrays.sort(nanos);
+                report.append(String.format(Locale.ROOT, "%-34s %10.3f %10.3f", name, percentile(nanos, 50) / 1e6,
+                        percentile(nanos, 99) / 1e6));
+                if (server != null) {
+                    report.append(String.format(Locale.ROOT, " %10.1f",
+                            (double) (server.getCommands() - commands) / iterations));
+                }
+                report.append(System.lineSeparator());
+            }
+        } finally {
+            library.runKeyword("Close All Browsers", args());
+        }
+    }
+
+    protected static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    protected static List<Object> args(Object... args) {
+        return new ArrayList<>(Arrays.asList(args));
+    }
+}
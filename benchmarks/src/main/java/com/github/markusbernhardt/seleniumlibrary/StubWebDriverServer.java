@@ -0,0 +1,421 @@
+package com.github.markusbernhardt.seleniumlibrary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.NoSuchFrameException;
+import org.openqa.selenium.NoSuchWindowException;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.json.Json;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process W3C WebDriver endpoint for benchmarks. Each session is backed by
+ * a local WebDriver, e.g. HtmlUnitDriver, so keywords behave like against a
+ * real browser while every command crosses the remote protocol. Every response
+ * is delayed by the configured latency to simulate the round trip to a grid.
+ * Only the commands used by the library's keywords are implemented.
+ */
+public class StubWebDriverServer {
+
+    protected static final String ELEMENT_KEY = "element-6066-11e4-a52e-4f735466cecf";
+
+    protected final Json json = new Json();
+
+    protected final Supplier<WebDriver> backend;
+
+    protected final HttpServer server;
+
+    protected final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    protected final AtomicLong commands = new AtomicLong();
+
+    protected volatile long latencyMillis;
+
+    public StubWebDriverServer(Supplier<WebDriver> backend, long latencyMillis) throws IOException {
+        this.backend = backend;
+        this.latencyMillis = latencyMillis;
+        // Without TCP_NODELAY small responses wait for delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        for (Session session : sessions.values()) {
+            session.webDriver.quit();
+        }
+        sessions.clear();
+    }
+
+    public URL getUrl() throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+    }
+
+    /**
+     * Number of commands received so far
+     */
+    public long getCommands() {
+        return commands.get();
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    protected void handle(HttpExchange exchange) throws IOException {
+        commands.incrementAndGet();
+        int status = 200;
+        Object value;
+        try {
+            String body = read(exchange.getRequestBody());
+            Map<String, Object> parameters = body.isEmpty() ? Collections.emptyMap() : json.toType(body, Json.MAP_TYPE);
+            value = execute(exchange.getRequestMethod(), exchange.getRequestURI().getPath(), parameters);
+        } catch (NoSuchElementException e) {
+            status = 404;
+            value = error("no such element", e);
+        } catch (StaleElementReferenceException e) {
+            status = 404;
+            value = error("stale element reference", e);
+        } catch (NoSuchFrameException e) {
+            status = 404;
+            value = error("no such frame", e);
+        } catch (NoSuchWindowException e) {
+            status = 404;
+            value = error("no such window", e);
+        } catch (JavascriptException e) {
+            status = 500;
+            value = error("javascript error", e);
+        } catch (UnsupportedOperationException e) {
+            status = 500;
+            value = error("unsupported operation", e);
+        } catch (RuntimeException e) {
+            status = 500;
+            value = error("unknown error", e);
+        }
+        sleep(latencyMillis);
+        Map<String, Object> response = new HashMap<>();
+        response.put("value", value);
+        byte[] bytes = json.toJson(response).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    protected Object execute(String method, String path, Map<String, Object> parameters) {
+        String[] parts = path.replaceAll("^/+|/+$", "").split("/");
+        if (parts.length == 1 && parts[0].equals("status")) {
+            return map("ready", true, "message", "stub");
+        }
+        if (!parts[0].equals("session")) {
+            throw new UnsupportedOperationException(method + " " + path);
+        }
+        if (parts.length == 1 && method.equals("POST")) {
+            Session session = new Session(backend.get());
+            String sessionId = UUID.randomUUID().toString();
+            sessions.put(sessionId, session);
+            return map("sessionId", sessionId, "capabilities", map("browserName", "htmlunit", "platformName", "any"));
+        }
+        Session session = sessions.get(parts[1]);
+        if (session == null) {
+            throw new NoSuchWindowException("invalid session id " + parts[1]);
+        }
+        WebDriver webDriver = session.webDriver;
+        String command = String.join("/", Arrays.asList(parts).subList(2, parts.length));
+        if (command.startsWith("element/")) {
+            return executeOnElement(method, session, parts, parameters);
+        }
+        switch (method + " " + command) {
+        case "DELETE ":
+            sessions.remove(parts[1]);
+            webDriver.quit();
+            return null;
+        case "POST url":
+            webDriver.get((String) parameters.get("url"));
+            return null;
+        case "GET url":
+            return webDriver.getCurrentUrl();
+        case "GET title":
+            return webDriver.getTitle();
+        case "GET source":
+            return webDriver.getPageSource();
+        case "POST back":
+            webDriver.navigate().back();
+            return null;
+        case "POST forward":
+            webDriver.navigate().forward();
+            return null;
+        case "POST refresh":
+            webDriver.navigate().refresh();
+            return null;
+        case "POST timeouts":
+            return null;
+        case "GET timeouts":
+            return map("implicit", 0, "pageLoad", 300000, "script", 30000);
+        case "POST element":
+            return session.reference(webDriver.findElement(by(parameters)));
+        case "POST elements":
+            return session.references(webDriver.findElements(by(parameters)));
+        case "GET window":
+            return webDriver.getWindowHandle();
+        case "GET window/handles":
+            return new ArrayList<>(webDriver.getWindowHandles());
+        case "POST window":
+            webDriver.switchTo().window((String) parameters.get("handle"));
+            return null;
+        case "DELETE window":
+            webDriver.close();
+            return new ArrayList<>(webDriver.getWindowHandles());
+        case "POST frame":
+            switchToFrame(session, parameters.get("id"));
+            return null;
+        case "POST frame/parent":
+            webDriver.switchTo().parentFrame();
+            return null;
+        case "GET cookie":
+            List<Object> cookies = new ArrayList<>();
+            for (Cookie cookie : webDriver.manage().getCookies()) {
+                cookies.add(map("name", cookie.getName(), "value", cookie.getValue(), "path", cookie.getPath()));
+            }
+            return cookies;
+        case "DELETE cookie":
+            webDriver.manage().deleteAllCookies();
+            return null;
+        case "POST execute/sync":
+            return session.toJson(((JavascriptExecutor) webDriver).executeScript((String) parameters.get("script"),
+                    session.fromJson(parameters.get("args"))));
+        case "POST execute/async":
+            return session.toJson(((JavascriptExecutor) webDriver).executeAsyncScript(
+                    (String) parameters.get("script"), session.fromJson(parameters.get("args"))));
+        default:
+            throw new UnsupportedOperationException(method + " " + path);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    protected Object executeOnElement(String method, Session session, String[] parts, Map<String, Object> parameters) {
+        if (parts[3].equals("active")) {
+            return session.reference(session.webDriver.switchTo().activeElement());
+        }
+        WebElement element = session.element(parts[3]);
+        String command = parts.length > 4 ? parts[4] : "";
+        String name = parts.length > 5 ? parts[5] : null;
+        switch (method + " " + command) {
+        case "POST element":
+            return session.reference(element.findElement(by(parameters)));
+        case "POST elements":
+            return session.references(element.findElements(by(parameters)));
+        case "GET text":
+            return element.getText();
+        case "GET name":
+            return element.getTagName();
+        case "GET selected":
+            return element.isSelected();
+        case "GET enabled":
+            return element.isEnabled();
+        case "GET displayed":
+            return element.isDisplayed();
+        case "GET attribute":
+            return element.getAttribute(name);
+        case "GET property":
+            return session.toJson(element.getDomProperty(name));
+        case "GET css":
+            return element.getCssValue(name);
+        case "GET rect":
+            Rectangle rect = element.getRect();
+            return map("x", rect.getX(), "y", rect.getY(), "width", rect.getWidth(), "height", rect.getHeight());
+        case "POST click":
+            element.click();
+            return null;
+        case "POST clear":
+            element.clear();
+            return null;
+        case "POST value":
+            element.sendKeys((String) parameters.get("text"));
+            return null;
+        default:
+            throw new UnsupportedOperationException(method + " element/" + command);
+        }
+    }
+
+    protected void switchToFrame(Session session, Object id) {
+        if (id == null) {
+            session.webDriver.switchTo().defaultContent();
+        } else if (id instanceof Number) {
+            session.webDriver.switchTo().frame(((Number) id).intValue());
+        } else {
+            session.webDriver.switchTo().frame((WebElement) session.fromJsonValue(id));
+        }
+    }
+
+    protected static By by(Map<String, Object> parameters) {
+        String value = (String) parameters.get("value");
+        switch ((String) parameters.get("using")) {
+        case "css selector":
+            return By.cssSelector(value);
+        case "xpath":
+            return By.xpath(value);
+        case "link text":
+            return By.linkText(value);
+        case "partial link text":
+            return By.partialLinkText(value);
+        case "tag name":
+            return By.tagName(value);
+        default:
+            throw new UnsupportedOperationException("Locator strategy " + parameters.get("using"));
+        }
+    }
+
+    protected static Map<String, Object> error(String error, RuntimeException e) {
+        return map("error", error, "message", String.valueOf(e.getMessage()), "stacktrace", "");
+    }
+
+    protected static Map<String, Object> map(Object... keysAndValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    protected static String read(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    protected static void sleep(long millis) {
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * A session with the element references handed out to the client
+     */
+    protected static class Session {
+
+        protected final WebDriver webDriver;
+
+        protected final Map<String, WebElement> elements = new HashMap<>();
+
+        protected final Map<WebElement, String> references = new IdentityHashMap<>();
+
+        protected Session(WebDriver webDriver) {
+            this.webDriver = webDriver;
+        }
+
+        protected synchronized Map<String, Object> reference(WebElement element) {
+            String id = references.get(element);
+            if (id == null) {
+                id = UUID.randomUUID().toString();
+                references.put(element, id);
+                elements.put(id, element);
+            }
+            return map(ELEMENT_KEY, id);
+        }
+
+        protected List<Object> references(List<WebElement> elements) {
+            List<Object> list = new ArrayList<>();
+            for (WebElement element : elements) {
+                list.add(reference(element));
+            }
+            return list;
+        }
+
+        protected synchronized WebElement element(String id) {
+            WebElement element = elements.get(id);
+            if (element == null) {
+                throw new StaleElementReferenceException("Unknown element " + id);
+            }
+            return element;
+        }
+
+        @SuppressWarnings("unchecked")
+        protected Object[] fromJson(Object args) {
+            Object converted = fromJsonValue(args);
+            return converted instanceof List ? ((List<Object>) converted).toArray() : new Object[0];
+        }
+
+        @SuppressWarnings("unchecked")
+        protected Object fromJsonValue(Object value) {
+            if (value instanceof Map) {
+                Map<String, Object> map = (Map<String, Object>) value;
+                if (map.containsKey(ELEMENT_KEY)) {
+                    return element((String) map.get(ELEMENT_KEY));
+                }
+                Map<String, Object> converted = new LinkedHashMap<>();
+                for (Entry<String, Object> entry : map.entrySet()) {
+                    converted.put(entry.getKey(), fromJsonValue(entry.getValue()));
+                }
+                return converted;
+            }
+            if (value instanceof List) {
+                List<Object> converted = new ArrayList<>();
+                for (Object item : (List<Object>) value) {
+                    converted.add(fromJsonValue(item));
+                }
+                return converted;
+            }
+            return value;
+        }
+
+        @SuppressWarnings("unchecked")
+        protected Object toJson(Object value) {
+            if (value instanceof WebElement) {
+                return reference((WebElement) value);
+            }
+            if (value instanceof Map) {
+                Map<String, Object> converted = new LinkedHashMap<>();
+                for (Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                    converted.put(entry.getKey(), toJson(entry.getValue()));
+                }
+                return converted;
+            }
+            if (value instanceof List) {
+                List<Object> converted = new ArrayList<>();
+                for (Object item : (List<Object>) value) {
+                    converted.add(toJson(item));
+                }
+                return converted;
+            }
+            return value;
+        }
+    }
+}
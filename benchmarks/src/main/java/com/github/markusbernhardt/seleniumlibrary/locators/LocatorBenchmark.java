@@ -0,0 +1,105 @@
+package com.github.markusbernhardt.seleniumlibrary.locators;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import com.github.markusbernhardt.seleniumlibrary.StubWebDriver;
+import com.github.markusbernhardt.seleniumlibrary.keywords.Element;
+import com.github.markusbernhardt.seleniumlibrary.locators.ElementFinder.FindByCoordinates;
+import com.github.markusbernhardt.seleniumlibrary.locators.ElementFinder.KeyAttrs;
+
+/**
+ * Per-keyword costs of locating elements, measured against a stub WebDriver.
+ * The uncached benchmarks call the parsing steps directly, the cached ones
+ * go through {@link ElementFinder#find(WebDriver, String, String)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocatorBenchmark {
+
+    @Param({ "my_element", "id:my_element", "xpath://div[@id='my_element']", "css:div.my_class",
+            "link:My \"quoted\" 'link'" })
+    public String locator;
+
+    @Param({ "", "text field", "a" })
+    public String tag;
+
+    private WebDriver webDriver;
+
+    private FindByCoordinates keyAttrsCoordinates;
+
+    private KeyAttrs keyAttrs;
+
+    private String tableLocator;
+
+    @Setup
+    public void setup() {
+        webDriver = new StubWebDriver("http://localhost:8080/app/index.html");
+        if (tag.isEmpty()) {
+            tag = null;
+        }
+        keyAttrsCoordinates = new FindByCoordinates();
+        ElementFinder.parseLocator(keyAttrsCoordinates, locator);
+        ElementFinder.parseTag(keyAttrsCoordinates, tag);
+        keyAttrs = keyAttrsCoordinates.tag == null ? KeyAttrs.DEFAULT
+                : KeyAttrs.BY_TAG.getOrDefault(keyAttrsCoordinates.tag.toUpperCase(), KeyAttrs.DEFAULT);
+        tableLocator = locator.startsWith("css:") || locator.startsWith("xpath:") ? locator : "my_table";
+    }
+
+    @Benchmark
+    public Object parseLocator() {
+        FindByCoordinates findByCoordinates = new FindByCoordinates();
+        return ElementFinder.parseLocator(findByCoordinates, locator);
+    }
+
+    @Benchmark
+    public FindByCoordinates parseTag() {
+        FindByCoordinates findByCoordinates = new FindByCoordinates();
+        ElementFinder.parseTag(findByCoordinates, tag);
+        return findByCoordinates;
+    }
+
+    @Benchmark
+    public String buildKeyAttrsXpath() {
+        return ElementFinder.buildKeyAttrsXpath(keyAttrs, keyAttrsCoordinates,
+                keyAttrs.isWithUrl() ? "http://localhost:8080/app/" : null);
+    }
+
+    @Benchmark
+    public List<WebElement> findByKeyAttrsCached() {
+        return ElementFinder.findByKeyAttrs(webDriver, keyAttrsCoordinates);
+    }
+
+    @Benchmark
+    public List<WebElement> findCached() {
+        return ElementFinder.find(webDriver, locator, tag);
+    }
+
+    @Benchmark
+    public String escapeXpathValue() {
+        return Element.escapeXpathValue(locator);
+    }
+
+    @Benchmark
+    public List<String> parseTableLocator() {
+        return TableElementFinder.parseTableLocator(tableLocator, "content");
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of converting the timeouts every Wait ... keyword is called with.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotframeworkBenchmark {
+
+    @Param({ "42", "0.5", "2 seconds", "1 min 30 s", "2 hours 10 minutes 5 seconds 100 milliseconds" })
+    public String timestr;
+
+    @Benchmark
+    public double timestrToSecs() {
+        return Robotframework.timestrToSecs(timestr);
+    }
+}
@@ -18,4 +18,9 @@ public class SeleniumLibrary extends com.github.markusbernhardt.seleniumlibrary.
     public SeleniumLibrary(String timeout, String implicitWait, String keywordToRunOnFailure, String screenshotPath) {
 		super(timeout, implicitWait, keywordToRunOnFailure, screenshotPath);
 	}
+
+    public SeleniumLibrary(String timeout, String implicitWait, String keywordToRunOnFailure, String screenshotPath,
+            String waitPolling) {
+		super(timeout, implicitWait, keywordToRunOnFailure, screenshotPath, waitPolling);
+	}
 }
@@ -1,12 +1,16 @@
 package com.github.markusbernhardt.seleniumlibrary;
 
+/**
+ * @deprecated The run-on-failure keyword is run by
+ *             {@link SeleniumLibrary#runKeyword(String, java.util.List, java.util.Map)}
+ *             when the outermost keyword fails. This interface is not used
+ *             anymore and only kept for keyword classes of extensions.
+ */
+@Deprecated
 public interface RunOnFailureKeywords {
 
 	/**
-	 * This method is called by the
-	 * com.github.markusbernhardt.seleniumlibrary.aspects.RunOnFailureAspect in
-	 * case a exception is thrown in one of the public methods of a keyword
-	 * class.
+	 * Runs the run-on-failure keyword. Not called by the library anymore.
 	 */
 	void runOnFailureByAspectJ();
 
@@ -1,14 +1,20 @@
 package com.github.markusbernhardt.seleniumlibrary;
 
 import java.io.File;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.function.Supplier;
 
 import org.robotframework.javalib.annotation.Autowired;
 import org.robotframework.javalib.library.AnnotationLibrary;
 
 import com.github.markusbernhardt.seleniumlibrary.keywords.BrowserManagement;
+import com.github.markusbernhardt.seleniumlibrary.keywords.Logging;
 import com.github.markusbernhardt.seleniumlibrary.keywords.RunOnFailure;
 import com.github.markusbernhardt.seleniumlibrary.keywords.Screenshot;
+import com.github.markusbernhardt.seleniumlibrary.keywords.Waiting;
+import com.github.markusbernhardt.seleniumlibrary.utils.CommandMetrics;
 
 public class SeleniumLibrary extends AnnotationLibrary {
 
@@ -27,6 +33,16 @@ public class SeleniumLibrary extends AnnotationLibrary {
      */
     public static final String ROBOT_LIBRARY_VERSION = loadRobotLibraryVersion();
 
+    /**
+     * The listener Robot Framework notifies about suite boundaries.
+     */
+    public final SeleniumLibraryListener ROBOT_LIBRARY_LISTENER = new SeleniumLibraryListener(this);
+
+    /**
+     * Number of keywords currently running on each thread
+     */
+    protected final ThreadLocal<int[]> keywordDepth = ThreadLocal.withInitial(() -> new int[1]);
+
     private static String loadRobotLibraryVersion() {
         try {
             return ResourceBundle.getBundle(SeleniumLibrary.class.getCanonicalName().replace(".", File.separator))
@@ -53,6 +69,11 @@ public class SeleniumLibrary extends AnnotationLibrary {
     }
     
     public SeleniumLibrary(String timeout, String implicitWait, String keywordToRunOnFailure, String screenshotPath) {
+        this(timeout, implicitWait, keywordToRunOnFailure, screenshotPath, "fixed");
+    }
+
+    public SeleniumLibrary(String timeout, String implicitWait, String keywordToRunOnFailure, String screenshotPath,
+            String waitPolling) {
         super();
         addKeywordPattern(KEYWORD_PATTERN);
         //Enable annotations
@@ -63,6 +84,7 @@ public class SeleniumLibrary extends AnnotationLibrary {
         if (!screenshotPath.isEmpty()) {
             screenshot.setScreenshotDirectory(screenshotPath);
         }
+        waiting.setWaitPolling(waitPolling, null, null, "True");
     }
 
     // ##############################
@@ -78,6 +100,49 @@ public class SeleniumLibrary extends AnnotationLibrary {
     @Autowired
     Screenshot screenshot;
 
+    @Autowired
+    Waiting waiting;
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Object runKeyword(String keywordName, List args, Map kwargs) {
+        return dispatch(keywordName, () -> super.runKeyword(keywordName, args, kwargs));
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Object runKeyword(String keywordName, List args) {
+        return dispatch(keywordName, () -> super.runKeyword(keywordName, args));
+    }
+
+    /**
+     * Runs a keyword called by Robot Framework. If the outermost keyword of
+     * the current thread fails, the run-on-failure keyword is run. Failures of
+     * keywords run by the run-on-failure keyword itself, e.g. through
+     * BuiltIn, are nested and don't trigger it again. WebDriver commands are
+     * attributed to the outermost keyword.
+     */
+    protected Object dispatch(String keywordName, Supplier<Object> keyword) {
+        int[] depth = keywordDepth.get();
+        if (++depth[0] == 1) {
+            CommandMetrics.setCurrentKeyword(keywordName);
+        }
+        Logging.startBuffering();
+        try {
+            return keyword.get();
+        } catch (RuntimeException | Error e) {
+            if (depth[0] == 1) {
+                rof.runOnFailure();
+            }
+            throw e;
+        } finally {
+            if (--depth[0] == 0) {
+                CommandMetrics.setCurrentKeyword(null);
+            }
+            Logging.endBuffering();
+        }
+    }
+
     @Override
     public String getKeywordDocumentation(String keywordName) {
         if (keywordName.equals("__intro__")) {
@@ -173,7 +238,10 @@ public class SeleniumLibrary extends AnnotationLibrary {
                     "          Default action for the `run-on-failure functionality`.\r\n" + 
                     "        - ``screenshot_root_directory``:\r\n" + 
                     "          Location where possible screenshots are created. If not given,\r\n" + 
-                    "          the directory where the log file is written is used.";
+                    "          the directory where the log file is written is used.\r\n" + 
+                    "        - ``wait_polling``:\r\n" + 
+                    "          Default strategy for `Set Wait Polling`, either ``fixed`` or\r\n" + 
+                    "          ``backoff``.";
         } else {
             try {
                 return super.getKeywordDocumentation(keywordName);
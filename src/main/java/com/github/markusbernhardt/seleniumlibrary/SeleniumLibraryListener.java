@@ -0,0 +1,36 @@
+package com.github.markusbernhardt.seleniumlibrary;
+
+import java.util.Map;
+
+import com.github.markusbernhardt.seleniumlibrary.keywords.Logging;
+import com.github.markusbernhardt.seleniumlibrary.keywords.Screenshot;
+
+/**
+ * Robot Framework listener registered by the library. Keeps the state that is
+ * kept per suite or per test up to date.
+ */
+public class SeleniumLibraryListener {
+
+    public static final int ROBOT_LISTENER_API_VERSION = 2;
+
+    protected final SeleniumLibrary library;
+
+    public SeleniumLibraryListener(SeleniumLibrary library) {
+        this.library = library;
+    }
+
+    public void startSuite(String name, Map<String, Object> attributes) {
+        library.bm.getWebDriverCache().ownSessionContext();
+        Logging.invalidateLogDir();
+    }
+
+    public void startTest(String name, Map<String, Object> attributes) {
+        library.bm.getWebDriverCache().ownSessionContext();
+        library.rof.startTest(String.valueOf(attributes.get("longname")));
+    }
+
+    public void endSuite(String name, Map<String, Object> attributes) {
+        Screenshot.flushPendingScreenshots();
+        Logging.invalidateLogDir();
+    }
+}
@@ -0,0 +1,393 @@
+package com.github.markusbernhardt.seleniumlibrary.keywords;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.robotframework.javalib.annotation.ArgumentNames;
+import org.robotframework.javalib.annotation.Autowired;
+import org.robotframework.javalib.annotation.RobotKeyword;
+import org.robotframework.javalib.annotation.RobotKeywords;
+
+import com.github.markusbernhardt.seleniumlibrary.RunOnFailureKeywordsAdapter;
+import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
+import com.github.markusbernhardt.seleniumlibrary.locators.ElementFinder;
+
+@RobotKeywords
+public class Batching extends RunOnFailureKeywordsAdapter {
+
+	/**
+	 * Separates the keywords given to Run Keywords Batched
+	 */
+	public static final String SEPARATOR = "AND";
+
+	/**
+	 * Runs the actions of arguments[0] in order. Each action is [operation,
+	 * strategy, criteria, tag, constraints, candidates, parameters...] and
+	 * acts on the first element the resolve function of the
+	 * {@link ElementFinder} finds.
+	 * Stops at the first action that fails or cannot be done by the script
+	 * like the WebDriver command would do it, and returns [index, reason,
+	 * detail]. Returns null if all actions are done. While it runs,
+	 * window.seleniumLibraryBatch holds the id of arguments[1] and the number
+	 * of actions done, so the progress can be read with
+	 * {@link #PROGRESS_SCRIPT} if the script is interrupted.
+	 */
+	static final String BATCH_SCRIPT = ElementFinder.RESOLVER_FUNCTION + SelectElement.SELECT_FUNCTION
+			+ "function fire(element, types) {"
+			+ "  types.forEach(function (type) {"
+			+ "    var event = element.ownerDocument.createEvent('HTMLEvents');"
+			+ "    event.initEvent(type, true, false);"
+			+ "    element.dispatchEvent(event);"
+			+ "  });"
+			+ "}"
+			+ "function setValue(element, text) {"
+			+ "  var descriptor = Object.getOwnPropertyDescriptor(Object.getPrototypeOf(element), 'value');"
+			+ "  if (descriptor && descriptor.set) { descriptor.set.call(element, text); } else { element.value = text; }"
+			+ "}"
+			+ "function interactable(element) {"
+			+ "  return !element.disabled && (!element.getClientRects || element.getClientRects().length > 0);"
+			+ "}"
+			+ "function run(actions, progress) {"
+			+ "  for (var i = 0; i < actions.length; i++) {"
+			+ "    try {"
+			+ "      var stop = act(actions[i]);"
+			+ "    } catch (e) {"
+			+ "      return [i, 'error', String(e)];"
+			+ "    }"
+			+ "    if (stop) { return [i, stop[0], stop[1]]; }"
+			+ "    progress.done = i + 1;"
+			+ "  }"
+			+ "  return null;"
+			+ "}"
+			+ "function act(action) {"
+			+ "  var operation = action[0];"
+			+ "  var element = resolve(action[1], action[2], action[3], action[4], action[5])[0];"
+			+ "  if (!element) { return ['missing', null]; }"
+			+ "  if (operation === 'input' || operation === 'clear') {"
+			+ "    var tag = element.tagName.toLowerCase(), text = operation === 'input' ? action[6] : '';"
+			+ "    var textField = tag === 'textarea' || (tag === 'input' && /^(text|password|email|search|tel|url)$/.test(element.type));"
+			+ "    if (!textField || !interactable(element) || element.readOnly"
+			+ "        || (element.maxLength >= 0 && text.length > element.maxLength)) {"
+			+ "      return ['unsupported', null];"
+			+ "    }"
+			+ "    element.focus();"
+			+ "    setValue(element, text);"
+			+ "    fire(element, ['input', 'change']);"
+			+ "  } else if (operation === 'check') {"
+			+ "    if (!interactable(element)) { return ['unsupported', null]; }"
+			+ "    if (element.checked !== action[6]) { element.click(); }"
+			+ "  } else if (operation === 'select') {"
+			+ "    if (element.tagName.toLowerCase() !== 'select') { return ['unsupported', null]; }"
+			+ "    var missing = selectOptions(element, action[6], action[7], true);"
+			+ "    if (missing === null) { return ['unsupported', null]; }"
+			+ "    if (missing.length) { return ['option', missing[0]]; }"
+			+ "  }"
+			+ "  return null;"
+			+ "}"
+			+ "var progress = window.seleniumLibraryBatch = { id: arguments[1], done: 0 };"
+			+ "var result = run(arguments[0], progress);"
+			+ "delete window.seleniumLibraryBatch;"
+			+ "return result;";
+
+	/**
+	 * Returns the number of actions done by the batch script with the id of
+	 * arguments[0], or null if that is unknown
+	 */
+	static final String PROGRESS_SCRIPT = "var progress = window.seleniumLibraryBatch;"
+			+ "return progress && progress.id === arguments[0] ? progress.done : null;";
+
+	/**
+	 * Instantiated BrowserManagement keyword bean
+	 */
+	@Autowired
+	protected BrowserManagement browserManagement;
+
+	/**
+	 * Instantiated Element keyword bean
+	 */
+	@Autowired
+	protected Element element;
+
+	/**
+	 * Instantiated FormElement keyword bean
+	 */
+	@Autowired
+	protected FormElement formElement;
+
+	/**
+	 * Instantiated Logging keyword bean
+	 */
+	@Autowired
+	protected Logging logging;
+
+	/**
+	 * Instantiated SelectElement keyword bean
+	 */
+	@Autowired
+	protected SelectElement selectElement;
+
+	// ##############################
+	// Keywords
+	// ##############################
+
+	@RobotKeyword("Runs the given form keywords with as few WebDriver commands as possible.\r\n" + "\r\n"
+			+ "Keywords and their arguments are given like for BuiltIn's Run Keywords, separated by ``AND``. Consecutive keywords are run by one script in the browser. Supported keywords are:\r\n"
+			+ "| Input Text | Input Password | Clear Element Text |\r\n"
+			+ "| Select Checkbox | Unselect Checkbox | Select Radio Button |\r\n"
+			+ "| Select From List By Value | Select From List By Label | Select From List By Index |\r\n" + "\r\n"
+			+ "The keywords are run in order and stop at the first failure, which names the failed keyword. The script sets text field values with the native value setter, so frameworks tracking the value like React notice the change, and fires input and change events instead of typing key by key. Checkboxes and radio buttons are clicked by the script. Keywords whose element is not found yet or that the script cannot handle like the WebDriver command, e.g. hidden or read-only fields or fields with a too small maxlength, are run as usual, waiting for the element with the implicit wait. Use the single keywords if the page relies on key events.\r\n"
+			+ "\r\n" + "Example:\r\n"
+			+ " | Run Keywords Batched | Input Text | username | demo | AND | Input Password | password | mode | AND | Select From List By Value | country | de | AND | Select Checkbox | terms |")
+	@ArgumentNames({ "*keywords" })
+	public void runKeywordsBatched(String... keywords) {
+		List<Action> actions = parseActions(keywords);
+		logging.info(String.format("Running %d keywords batched.", actions.size()));
+
+		int start = 0;
+		while (start < actions.size()) {
+			start = runBatch(actions, start);
+		}
+	}
+
+	// ##############################
+	// Internal Methods
+	// ##############################
+
+	/**
+	 * Runs the actions from start on with the batch script, until one of them
+	 * cannot be run by the script. Returns the index of the next action to
+	 * run.
+	 */
+	protected int runBatch(List<Action> actions, int start) {
+		int end = actions.size();
+		WebDriver webDriver = browserManagement.getCurrentWebDriver();
+		List<List<Object>> batch = null;
+		if (webDriver instanceof JavascriptExecutor) {
+			try {
+				batch = new ArrayList<>();
+				for (Action action : actions.subList(start, end)) {
+					batch.add(action.getArguments(webDriver));
+				}
+			} catch (UnsupportedOperationException | WebDriverException e) {
+				// Nothing was done yet
+				logging.debug(String.format("Batch script failed, running keywords one by one: %s", e.getMessage()));
+				batch = null;
+			}
+		}
+		if (batch == null) {
+			runOneByOne(actions, start, end);
+			return end;
+		}
+
+		String id = UUID.randomUUID().toString();
+		Object result;
+		try {
+			result = ((JavascriptExecutor) webDriver).executeScript(BATCH_SCRIPT, batch, id);
+		} catch (UnsupportedOperationException | WebDriverException e) {
+			// Resume after the actions the script has done, their events may have had effects already
+			int next = start + getProgress(webDriver, id, actions.get(start), e);
+			logging.debug(String.format("Batch script failed after %d keywords, running the next one on its own: %s",
+					next - start, e.getMessage()));
+			if (next < end) {
+				runOneByOne(actions, next, next + 1);
+				next++;
+			}
+			return next;
+		}
+		if (result == null) {
+			return end;
+		}
+
+		List<?> stop = (List<?>) result;
+		int index = start + ((Number) stop.get(0)).intValue();
+		Action action = actions.get(index);
+		String detail = String.valueOf(stop.get(2));
+		switch (String.valueOf(stop.get(1))) {
+		case "missing":
+			// The keyword waits for the element and fails like it does without batching
+		case "error":
+		case "unsupported":
+			runOneByOne(actions, index, index + 1);
+			return index + 1;
+		default:
+			throw action.failure(String.format("Option '%s' not in list '%s'.", detail, action.locator), null);
+		}
+	}
+
+	/**
+	 * Returns the number of actions the interrupted batch script has done.
+	 * Fails with the first action of the batch if that is unknown, e.g.
+	 * because the page navigated, as those actions must not be done twice.
+	 */
+	protected int getProgress(WebDriver webDriver, String id, Action first, RuntimeException failure) {
+		Object done = null;
+		try {
+			done = ((JavascriptExecutor) webDriver).executeScript(PROGRESS_SCRIPT, id);
+		} catch (UnsupportedOperationException | WebDriverException e) {
+			// Handled below
+		}
+		if (!(done instanceof Number)) {
+			throw first.failure(String.format("Batch script failed and may have run some keywords: %s",
+					failure.getMessage()), failure);
+		}
+		return ((Number) done).intValue();
+	}
+
+	protected void runOneByOne(List<Action> actions, int start, int end) {
+		for (Action action : actions.subList(start, end)) {
+			try {
+				action.keyword.run();
+			} catch (RuntimeException e) {
+				throw action.failure(e.getMessage(), e);
+			}
+		}
+	}
+
+	protected List<Action> parseActions(String... keywords) {
+		List<Action> actions = new ArrayList<>();
+		List<String> current = new ArrayList<>();
+		for (int i = 0; i <= keywords.length; i++) {
+			if (i < keywords.length && !keywords[i].equals(SEPARATOR)) {
+				current.add(keywords[i]);
+				continue;
+			}
+			if (current.isEmpty()) {
+				throw new SeleniumLibraryNonFatalException(
+						String.format("Keyword %d of the batch is empty.", actions.size() + 1));
+			}
+			actions.add(parseAction(actions.size() + 1, current.get(0),
+					current.subList(1, current.size()).toArray(new String[0])));
+			current.clear();
+		}
+		return actions;
+	}
+
+	protected Action parseAction(int number, String name, String[] args) {
+		String normalized = name.toLowerCase().replace(" ", "").replace("_", "");
+		switch (normalized) {
+		case "inputtext":
+		case "inputpassword":
+			requireArguments(number, name, args, 2, 2);
+			return new Action(number, name, args[0], normalized.equals("inputtext")
+					? () -> formElement.inputText(args[0], args[1]) : () -> formElement.inputPassword(args[0], args[1]),
+					"input", null, args[1]);
+		case "clearelementtext":
+			requireArguments(number, name, args, 1, 1);
+			return new Action(number, name, args[0], () -> element.clearElementText(args[0]), "clear", null);
+		case "selectcheckbox":
+		case "unselectcheckbox":
+			requireArguments(number, name, args, 1, 1);
+			boolean checked = normalized.equals("selectcheckbox");
+			return new Action(number, name, args[0], checked ? () -> formElement.selectCheckbox(args[0])
+					: () -> formElement.unselectCheckbox(args[0]), "check", "input", checked);
+		case "selectradiobutton":
+			requireArguments(number, name, args, 2, 2);
+			String radioLocator = String.format("xpath://input[@type='radio' and @name=%s and (@value=%s or @id=%s)]",
+					Element.escapeXpathValue(args[0]), Element.escapeXpathValue(args[1]),
+					Element.escapeXpathValue(args[1]));
+			return new Action(number, name, radioLocator, () -> formElement.selectRadioButton(args[0], args[1]),
+					"check", null, true);
+		case "selectfromlistbyvalue":
+		case "selectfromlistbylabel":
+			requireArguments(number, name, args, 2, Integer.MAX_VALUE);
+			String[] items = Arrays.copyOfRange(args, 1, args.length);
+			boolean byValue = normalized.equals("selectfromlistbyvalue");
+			return new Action(number, name, args[0], byValue ? () -> selectElement.selectFromListByValue(args[0], items)
+					: () -> selectElement.selectFromListByLabel(args[0], items), "select", "select",
+					byValue ? "value" : "label", Arrays.asList(items));
+		case "selectfromlistbyindex":
+			requireArguments(number, name, args, 2, Integer.MAX_VALUE);
+			String[] indexes = Arrays.copyOfRange(args, 1, args.length);
+			List<Integer> indexList = new ArrayList<>();
+			for (String index : indexes) {
+				try {
+					indexList.add(Integer.parseInt(index));
+				} catch (NumberFormatException e) {
+					throw new SeleniumLibraryNonFatalException(
+							String.format("Keyword %d of the batch, '%s', failed: Index '%s' is no number.", number,
+									name, index));
+				}
+			}
+			return new Action(number, name, args[0], () -> selectElement.selectFromListByIndex(args[0], indexes),
+					"select", "select", "index", indexList);
+		default:
+			throw new SeleniumLibraryNonFatalException(
+					String.format("Keyword %d of the batch, '%s', cannot be batched.", number, name));
+		}
+	}
+
+	protected void requireArguments(int number, String name, String[] args, int min, int max) {
+		if (args.length < min || args.length > max) {
+			throw new SeleniumLibraryNonFatalException(
+					String.format("Keyword %d of the batch, '%s', got %d arguments.", number, name, args.length));
+		}
+	}
+
+	/**
+	 * A keyword of the batch and the arguments of its script action
+	 */
+	protected static class Action {
+
+		protected final int number;
+
+		protected final String name;
+
+		protected final String locator;
+
+		protected final Runnable keyword;
+
+		protected final String tag;
+
+		/**
+		 * Arguments of the resolve function, or null if the script cannot
+		 * resolve the locator
+		 */
+		protected final List<Object> resolverArguments;
+
+		protected final String operation;
+
+		protected final List<Object> parameters;
+
+		protected Action(int number, String name, String locator, Runnable keyword, String operation, String tag,
+				Object... parameters) {
+			this.number = number;
+			this.name = name;
+			this.locator = locator;
+			this.keyword = keyword;
+			this.tag = tag;
+			this.resolverArguments = ElementFinder.getResolverArguments(locator, tag);
+			this.operation = operation;
+			this.parameters = Arrays.asList(parameters);
+		}
+
+		/**
+		 * Returns the arguments of the script action. Looks up the elements
+		 * of locators the script cannot resolve.
+		 */
+		protected List<Object> getArguments(WebDriver webDriver) {
+			List<Object> arguments = new ArrayList<>();
+			arguments.add(operation);
+			if (resolverArguments != null) {
+				arguments.addAll(resolverArguments);
+				arguments.add(Collections.emptyList());
+			} else {
+				arguments.addAll(Arrays.asList("", "", "", Collections.emptyMap()));
+				arguments.add(ElementFinder.find(webDriver, locator, tag));
+			}
+			arguments.addAll(parameters);
+			return arguments;
+		}
+
+		protected SeleniumLibraryNonFatalException failure(String message, Throwable cause) {
+			return new SeleniumLibraryNonFatalException(String.format("Keyword %d of the batch, '%s', failed: %s",
+					number, name, StringUtils.defaultString(message)), cause);
+		}
+	}
+}
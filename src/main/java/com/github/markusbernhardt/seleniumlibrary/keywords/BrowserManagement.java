@@ -7,13 +7,25 @@ import io.github.bonigarcia.wdm.config.DriverManagerType;
 
 import java.io.File;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.http.HttpHost;
@@ -28,6 +40,7 @@ import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
 import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.ImmutableCapabilities;
 import org.openqa.selenium.MutableCapabilities;
 import org.openqa.selenium.Platform;
 import org.openqa.selenium.WebDriver;
@@ -42,7 +55,9 @@ import org.openqa.selenium.firefox.FirefoxProfile;
 import org.openqa.selenium.htmlunit.HtmlUnitDriver;
 import org.openqa.selenium.ie.InternetExplorerDriver;
 import org.openqa.selenium.ie.InternetExplorerOptions;
+import org.openqa.selenium.remote.AbstractDriverOptions;
 import org.openqa.selenium.remote.Augmenter;
+import org.openqa.selenium.remote.CommandExecutor;
 import org.openqa.selenium.remote.DesiredCapabilities;
 import org.openqa.selenium.remote.HttpCommandExecutor;
 import org.openqa.selenium.remote.RemoteWebDriver;
@@ -57,9 +72,15 @@ import com.github.markusbernhardt.seleniumlibrary.RunOnFailureKeywordsAdapter;
 import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryFatalException;
 import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
 import com.github.markusbernhardt.seleniumlibrary.locators.ElementFinder;
+import com.github.markusbernhardt.seleniumlibrary.locators.ElementHandleCache;
+import com.github.markusbernhardt.seleniumlibrary.locators.PageTextSnapshot;
+import com.github.markusbernhardt.seleniumlibrary.utils.BoundedCache;
+import com.github.markusbernhardt.seleniumlibrary.utils.CommandMetrics;
+import com.github.markusbernhardt.seleniumlibrary.utils.InstrumentedCommandExecutor;
 import com.github.markusbernhardt.seleniumlibrary.utils.Robotframework;
 import com.github.markusbernhardt.seleniumlibrary.utils.WebDriverCache;
 import com.github.markusbernhardt.seleniumlibrary.utils.WebDriverCache.SessionIdAliasWebDriverTuple;
+import com.github.markusbernhardt.seleniumlibrary.utils.WebDriverPool;
 
 import static org.openqa.selenium.remote.Browser.HTMLUNIT;
 
@@ -88,6 +109,27 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
      */
     protected double implicitWait = 0;
 
+    /**
+     * Maximum number of distinct browser settings kept in the capabilities
+     * cache
+     */
+    public static final int CAPABILITIES_CACHE_SIZE = 64;
+
+    /**
+     * Capability templates by (browser, desired capabilities, browser options)
+     */
+    protected BoundedCache<List<String>, Capabilities> capabilitiesCache = new BoundedCache<>(CAPABILITIES_CACHE_SIZE);
+
+    /**
+     * WebDriver commands of all sessions created by the library, shared with
+     * JMX
+     */
+    protected static final CommandMetrics commandMetrics = new CommandMetrics();
+
+    static {
+        commandMetrics.register();
+    }
+
     /**
      * Instantiated Logging keyword bean
      */
@@ -119,6 +161,10 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
         return timeout;
     }
 
+    public double getImplicitWait() {
+        return implicitWait;
+    }
+
     // ##############################
     // Keywords
     // ##############################
@@ -139,6 +185,83 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
         ElementFinder.addLocationStrategy(strategyName, functionDefinition, delimiter);
     }
 
+    @RobotKeyword("Sets how elements are resolved and returns the previous mode.\r\n" +
+            "\r\n" +
+            "With mode _native_ (the default) each lookup and each tag or attribute check of a found element is a separate WebDriver command. With mode _javascript_ locators using the id, name, identifier, xpath, css and tag strategies are looked up and filtered by one injected script, so every lookup is a single command. Elements found by other strategies are filtered by one script as well. If the browser cannot execute JavaScript, the native mode is used.\r\n" +
+            "\r\n" +
+            "Note that the _javascript_ mode does not apply the implicit wait. Use the Wait ... keywords instead.\r\n" +
+            "\r\n" +
+            "Example:\r\n" +
+            " | ${orig mode} = | Set Element Resolver | javascript | \r\n" +
+            " | Select Checkbox | terms | \r\n" +
+            " | Set Element Resolver | ${orig mode} | # Reset to old value |")
+    @ArgumentNames({ "mode" })
+    public String setElementResolver(String mode) {
+        String oldMode = ElementFinder.isJavaScriptResolver() ? "javascript" : "native";
+        switch (mode.toLowerCase()) {
+        case "javascript":
+            ElementFinder.setJavaScriptResolver(true);
+            break;
+        case "native":
+            ElementFinder.setJavaScriptResolver(false);
+            break;
+        default:
+            throw new SeleniumLibraryNonFatalException(String.format("Unknown element resolver mode: %s", mode));
+        }
+        return oldMode;
+    }
+
+    @RobotKeyword("Sets whether text assertions search a page text snapshot and returns the previous mode.\r\n" +
+            "\r\n" +
+            "With mode _disabled_ (the default) every text assertion searches the DOM of the browser again. With mode _enabled_ Page Should Contain, Page Should Not Contain, Current Frame Contains and Current Frame Should Not Contain read the text of the document and all its frames once and search it locally. The snapshot is reused until the browser reports a change of one of the documents or another page is loaded. Frames of other origins are still searched in the browser. Browsers that cannot report changes, like HtmlUnit, read the text again for every assertion.\r\n" +
+            "\r\n" +
+            "Example:\r\n" +
+            " | ${orig mode} = | Set Page Text Snapshot | enabled | \r\n" +
+            " | Page Should Contain | Welcome | \r\n" +
+            " | Set Page Text Snapshot | ${orig mode} | # Reset to old value |")
+    @ArgumentNames({ "mode" })
+    public String setPageTextSnapshot(String mode) {
+        String oldMode = PageTextSnapshot.isEnabled() ? "enabled" : "disabled";
+        switch (mode.toLowerCase()) {
+        case "enabled":
+            PageTextSnapshot.setEnabled(true);
+            break;
+        case "disabled":
+            PageTextSnapshot.setEnabled(false);
+            break;
+        default:
+            throw new SeleniumLibraryNonFatalException(String.format("Unknown page text snapshot mode: %s", mode));
+        }
+        return oldMode;
+    }
+
+    @RobotKeyword("Sets whether found elements are reused by later keywords and returns the previous mode.\r\n" +
+            "\r\n" +
+            "With mode _disabled_ (the default) every keyword looks up its element again. With mode _enabled_ the element a keyword found for a locator is reused by later keywords with the same locator in the same frame, which saves the lookup commands. Before an element is reused, one WebDriver command checks that it is still in the page, otherwise it is looked up again. Elements are forgotten when another window is selected or a page is loaded with `Go To`, `Go Back` or `Reload Page`.\r\n" +
+            "\r\n" +
+            "Only keywords that act on the first element found reuse elements. A locator keeps its element as long as it is in the page, even if the locator would match another element first by now. Frames are tracked through `Select Frame` and `Unselect Frame`, so elements are only reused once the top frame was selected or a page was loaded after enabling.\r\n" +
+            "\r\n" +
+            "Example:\r\n" +
+            " | ${orig mode} = | Set Element Handle Cache | enabled | \r\n" +
+            " | Input Text | username | demo | \r\n" +
+            " | Textfield Value Should Be | username | demo | # Reuses the element | \r\n" +
+            " | Set Element Handle Cache | ${orig mode} | # Reset to old value |")
+    @ArgumentNames({ "mode" })
+    public String setElementHandleCache(String mode) {
+        String oldMode = ElementHandleCache.isEnabled() ? "enabled" : "disabled";
+        switch (mode.toLowerCase()) {
+        case "enabled":
+            ElementHandleCache.setEnabled(true);
+            break;
+        case "disabled":
+            ElementHandleCache.setEnabled(false);
+            break;
+        default:
+            throw new SeleniumLibraryNonFatalException(String.format("Unknown element handle cache mode: %s", mode));
+        }
+        return oldMode;
+    }
+
     @RobotKeyword("Closes the current browser instance.")
     public void closeBrowser() {
         if (webDriverCache.getCurrentSessionId() != null) {
@@ -186,8 +309,9 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
         try {
             logging.info("browserName: " + browserName);
 
-            WebDriver webDriver = createWebDriver(browserName, desiredCapabilities, remoteUrl, browserOptions);
+            WebDriver webDriver = launchWebDriver(browserName, desiredCapabilities, remoteUrl, browserOptions);
             webDriver.get(url);
+            ElementHandleCache.reset(webDriver);
             String sessionId = webDriverCache.register(webDriver, alias);
             logging.debug(String.format("Opened browser with session id %s", sessionId));
             return sessionId;
@@ -202,6 +326,83 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
         }
     }
 
+    @RobotKeyword("Opens one browser instance per alias to the given ``url`` in parallel and returns their indices.\r\n" +
+            "\r\n" +
+            "``aliases`` is a comma separated list of aliases. All browsers are started with the same ``browserName``, ``remoteUrl``, ``desiredCapabilities`` and ``browserOptions``, see `Open Browser` for details. At most ``maxParallel`` browsers are started at the same time. Each browser is registered with its alias as soon as it is up, so the setup takes about as long as the slowest browser. The indices are returned in the order of the aliases and the browser of the last alias is the current one afterwards.\r\n" +
+            "\r\n" +
+            "If a browser cannot be started, the keyword fails after all others are up. The browsers that were started stay open.\r\n" +
+            "\r\n" +
+            "Example:\r\n" +
+            " | Open Browsers In Parallel | http://example.com | user A, user B, admin | chrome | \r\n" +
+            " | Switch Browser | admin | ")
+    @ArgumentNames({ "url", "aliases", "browserName=firefox", "remoteUrl=None", "desiredCapabilities=None",
+            "browserOptions=None", "maxParallel=4" })
+    public List<String> openBrowsersInParallel(String url, String aliases, String browserName, String remoteUrl,
+            String desiredCapabilities, String browserOptions, String maxParallel) {
+        List<String> aliasList = new ArrayList<>();
+        for (String alias : aliases.split(",")) {
+            if (aliasList.contains(alias.trim())) {
+                throw new SeleniumLibraryNonFatalException(String.format("Alias '%s' given twice.", alias.trim()));
+            }
+            if (!alias.trim().isEmpty()) {
+                aliasList.add(alias.trim());
+            }
+        }
+        if (aliasList.isEmpty()) {
+            throw new SeleniumLibraryNonFatalException("No aliases given.");
+        }
+        logging.info("browserName: " + browserName);
+
+        int threads = Math.max(1, Math.min(Integer.parseInt(maxParallel), aliasList.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Open Browsers In Parallel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Entry<String, WebDriver>> completionService = new ExecutorCompletionService<>(executor);
+        Map<String, String> sessionIds = new HashMap<>();
+        Throwable failure = null;
+        try {
+            for (String alias : aliasList) {
+                completionService.submit(() -> {
+                    WebDriver webDriver = launchWebDriver(browserName, desiredCapabilities, remoteUrl, browserOptions);
+                    webDriver.get(url);
+                    ElementHandleCache.reset(webDriver);
+                    return new SimpleImmutableEntry<>(alias, webDriver);
+                });
+            }
+            // Register the browsers in the order they come up
+            for (int i = 0; i < aliasList.size(); i++) {
+                try {
+                    Entry<String, WebDriver> opened = completionService.take().get();
+                    String sessionId = webDriverCache.register(opened.getValue(), opened.getKey());
+                    sessionIds.put(opened.getKey(), sessionId);
+                    logging.debug(String.format("Opened browser '%s' with session id %s", opened.getKey(), sessionId));
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        } finally {
+            executor.shutdown();
+        }
+
+        if (failure != null) {
+            logging.warn(String.format("Opening browsers '%s' to base url '%s' failed", browserName, url));
+            throw new SeleniumLibraryFatalException(failure);
+        }
+        webDriverCache.switchBrowser(aliasList.get(aliasList.size() - 1));
+        List<String> orderedSessionIds = new ArrayList<>();
+        for (String alias : aliasList) {
+            orderedSessionIds.add(sessionIds.get(alias));
+        }
+        return orderedSessionIds;
+    }
+
     @RobotKeyword("Switches between active browser instances using an index or an alias.\r\n" +
             "\r\n" +
             "The index is returned from Open Browser and an alias can be given to it.\r\n" +
@@ -237,7 +438,7 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
 
     @RobotKeyword("Closes all open browsers and resets the browser cache.\r\n" +
             "\r\n" +
-            "After this keyword new indexes returned from `Open Browser` keyword are reset to 1.\r\n" +
+            "Only the browsers opened by the current test runner are closed. Browsers of runners executing in parallel in the same process stay open. Once no browser is open anymore, new indexes returned from `Open Browser` keyword are reset to 1.\r\n" +
             "\r\n" +
             "This keyword should be used in test or suite teardown to make sure all browsers are closed.")
     public void closeAllBrowsers() {
@@ -245,6 +446,62 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
         webDriverCache.closeAll();
     }
 
+    @RobotKeyword("Enables the browser pool.\r\n" +
+            "\r\n" +
+            "While the pool is enabled, `Close Browser` and `Close All Browsers` hand the browser sessions back to the pool instead of quitting them. The sessions are reset: Extra windows are closed, the cookies and the web storage are cleared and about:blank is opened. Chromium based browsers started locally get the cookies and storage of all origins cleared through the DevTools protocol. Other browsers only allow clearing the origins of the pages open in a window, so their sessions are quit instead of reused if the windows showed pages of more than one origin. Origins visited only in between, e.g. an identity provider redirecting back to the application, cannot be detected there; use ``max_uses=1`` for such browsers if that matters. `Open Browser` reuses a pooled session that was opened with the same browser, remote URL, desired capabilities and browser options, and only starts a new browser if there is none.\r\n" +
+            "\r\n" +
+            "At most ``max_idle_per_key`` sessions are kept per combination. Sessions older than ``max_age`` or used more than ``max_uses`` times are quit, as well as sessions that are not responding anymore. Zero disables the age and use limits. Idle sessions are quit when the pool is disabled and when the JVM exits.\r\n" +
+            "\r\n" +
+            "Example:\r\n" +
+            " | Enable Browser Pool | max_idle_per_key=2 | max_age=30 minutes | max_uses=50 | \r\n" +
+            " | Prewarm Browser Pool | 2 | chrome | ")
+    @ArgumentNames({ "max_idle_per_key=2", "max_age=30 minutes", "max_uses=0" })
+    public void enableBrowserPool(String maxIdlePerKey, String maxAge, String maxUses) {
+        disableBrowserPool();
+        webDriverCache.setPool(new WebDriverPool(Integer.parseInt(maxIdlePerKey),
+                (long) (Robotframework.timestrToSecs(maxAge) * 1000), Integer.parseInt(maxUses)));
+    }
+
+    @RobotKeyword("Disables the browser pool and quits all idle pooled sessions.\r\n" +
+            "\r\n" +
+            "Browsers still open are quit when they are closed.")
+    public void disableBrowserPool() {
+        WebDriverPool pool = webDriverCache.getPool();
+        if (pool != null) {
+            webDriverCache.setPool(null);
+            pool.shutdown();
+            logging.debug(String.format("Browser pool launched %d, reused %d and evicted %d sessions",
+                    pool.getLaunched(), pool.getReused(), pool.getEvicted()));
+        }
+    }
+
+    @RobotKeyword("Starts browsers until the browser pool holds ``count`` idle sessions for the given browser configuration.\r\n" +
+            "\r\n" +
+            "The pool holds at most ``max_idle_per_key`` idle sessions per browser configuration, see `Enable Browser Pool`. A larger ``count`` is capped to that with a warning.\r\n" +
+            "\r\n" +
+            "The arguments are the same as for `Open Browser`. The pool has to be enabled with `Enable Browser Pool` first.")
+    @ArgumentNames({ "count", "browserName=firefox", "remoteUrl=None", "desiredCapabilities=None",
+            "browserOptions=None" })
+    public void prewarmBrowserPool(String count, String browserName, String remoteUrl, String desiredCapabilities,
+            String browserOptions) {
+        WebDriverPool pool = webDriverCache.getPool();
+        if (pool == null) {
+            throw new SeleniumLibraryNonFatalException("Browser pool is not enabled.");
+        }
+        if (Integer.parseInt(count) > pool.getMaxIdlePerKey()) {
+            logging.warn(String.format(
+                    "Prewarming only %d sessions, the browser pool keeps at most that many idle sessions per browser configuration.",
+                    pool.getMaxIdlePerKey()));
+        }
+        try {
+            pool.prewarm(getPoolKey(browserName, desiredCapabilities, remoteUrl, browserOptions),
+                    Integer.parseInt(count),
+                    () -> createWebDriver(browserName, desiredCapabilities, remoteUrl, browserOptions));
+        } catch (Exception e) {
+            throw new SeleniumLibraryFatalException(e);
+        }
+    }
+
 
     @RobotKeyword("Sets frame identified by ``locator`` as the current frame.\r\n" +
             "\r\n" +
@@ -263,11 +520,13 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
         logging.info(String.format("Selecting frame '%s'.", locator));
         List<WebElement> elements = element.elementFind(locator, true, true);
         webDriverCache.getCurrent().switchTo().frame(elements.get(0));
+        ElementHandleCache.selectFrame(webDriverCache.getCurrent(), locator);
     }
 
     @RobotKeyword("Selects the top frame as the current frame.")
     public void unselectFrame() {
         webDriverCache.getCurrent().switchTo().defaultContent();
+        ElementHandleCache.selectTopFrame(webDriverCache.getCurrent());
     }
 
     @RobotKeyword("Returns the current browser URL.")
@@ -315,6 +574,33 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
         }
     }
 
+    @RobotKeyword("Returns the WebDriver commands issued so far, grouped by keyword or by session.\r\n" +
+            "\r\n" +
+            "``by`` is either ``keyword`` or ``session``. Sessions are identified by the id returned by `Get Remote Session Id`. The result is a dictionary with one entry per keyword or session, each a dictionary with the number of ``commands``, the ``bytes_sent`` and ``bytes_received`` over HTTP and the ``total_ms`` and ``mean_ms`` spent waiting for the commands. Bytes are only counted for browsers opened with a ``remote_url``. Commands issued outside of keywords, e.g. while browsers are opened in parallel, are listed as ``<none>``.\r\n" +
+            "\r\n" +
+            "The totals are also available through JMX as ``" + CommandMetrics.OBJECT_NAME + "``.\r\n" +
+            "\r\n" +
+            "Example:\r\n" +
+            " | ${stats}= | Get WebDriver Command Statistics | \r\n" +
+            " | Log | ${stats['Select From List By Label']['commands']} | ")
+    @ArgumentNames({ "by=keyword" })
+    public Map<String, Map<String, Object>> getWebDriverCommandStatistics(String by) {
+        switch (by.toLowerCase()) {
+        case "keyword":
+            return commandMetrics.getStatistics(false);
+        case "session":
+            return commandMetrics.getStatistics(true);
+        default:
+            throw new SeleniumLibraryNonFatalException(
+                    String.format("Statistics can be grouped by keyword or session, not by '%s'", by));
+        }
+    }
+
+    @RobotKeyword("Forgets the WebDriver commands counted so far. See `Get WebDriver Command Statistics`.")
+    public void resetWebDriverCommandStatistics() {
+        commandMetrics.reset();
+    }
+
     @RobotKeyword("Returns basic system information about the execution environment.")
     public String getSystemInfo() {
         return String.format("      os.name: '%s'\n      os.arch: '%s'\n   os.version: '%s'\n java.version: '%s'",
@@ -391,6 +677,7 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
     @RobotKeyword("Simulates the user clicking the \"back\" button on their browser.")
     public void goBack() {
         webDriverCache.getCurrent().navigate().back();
+        ElementHandleCache.reset(webDriverCache.getCurrent());
     }
 
     @RobotKeyword("Navigates the active browser instance to the provided URL.")
@@ -398,11 +685,13 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
     public void goTo(String url) {
         logging.info(String.format("Opening url '%s'", url));
         webDriverCache.getCurrent().get(url);
+        ElementHandleCache.reset(webDriverCache.getCurrent());
     }
 
     @RobotKeyword("Simulates user reloading page.")
     public void reloadPage() {
         webDriverCache.getCurrent().navigate().refresh();
+        ElementHandleCache.reset(webDriverCache.getCurrent());
     }
 
     @RobotKeyword("*(NOT IMPLEMENTED)*\r\n\r\nReturns the delay in seconds that is waited after each Selenium command.")
@@ -595,6 +884,31 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
         return auth.substring(index + 1);
     }
 
+    /**
+     * Leases a session from the browser pool if it is enabled, otherwise
+     * creates a new one.
+     */
+    protected WebDriver launchWebDriver(String browserName, String desiredCapabilitiesString, String remoteUrlString,
+            String browserOptions) throws Exception {
+        WebDriverPool pool = webDriverCache.getPool();
+        if (pool == null) {
+            return createWebDriver(browserName, desiredCapabilitiesString, remoteUrlString, browserOptions);
+        }
+        WebDriver webDriver = pool.acquire(
+                getPoolKey(browserName, desiredCapabilitiesString, remoteUrlString, browserOptions),
+                () -> createWebDriver(browserName, desiredCapabilitiesString, remoteUrlString, browserOptions));
+        // Timeouts might have changed since the session was started
+        webDriver.manage().timeouts().scriptTimeout(Duration.ofMillis((long) (timeout * 1000.0)));
+        webDriver.manage().timeouts().implicitlyWait(Duration.ofMillis((long) (implicitWait * 1000.0)));
+        return webDriver;
+    }
+
+    protected List<String> getPoolKey(String browserName, String desiredCapabilitiesString, String remoteUrlString,
+            String browserOptions) {
+        return Arrays.asList(browserName.toLowerCase().replace(" ", ""), desiredCapabilitiesString, remoteUrlString,
+                browserOptions);
+    }
+
     protected WebDriver createWebDriver(String browserName, String desiredCapabilitiesString, String remoteUrlString,
             String browserOptions) throws MalformedURLException {
         browserName = browserName.toLowerCase().replace(" ", "");
@@ -609,10 +923,11 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
         } else {
             logging.info(String.format("Opening browser '%s'", browserName));
             webDriver = createLocalWebDriver(browserName, desiredCapabilities);
+            instrumentLocalWebDriver(webDriver);
         }
 
-        webDriver.manage().timeouts().setScriptTimeout((int) (timeout * 1000.0), TimeUnit.MILLISECONDS);
-        webDriver.manage().timeouts().implicitlyWait((int) (implicitWait * 1000.0), TimeUnit.MILLISECONDS);
+        webDriver.manage().timeouts().scriptTimeout(Duration.ofMillis((long) (timeout * 1000.0)));
+        webDriver.manage().timeouts().implicitlyWait(Duration.ofMillis((long) (implicitWait * 1000.0)));
 
         return webDriver;
     }
@@ -700,13 +1015,53 @@ public class BrowserManagement extends RunOnFailureKeywordsAdapter {
     }
 
     protected WebDriver createRemoteWebDriver(Capabilities desiredCapabilities, URL remoteUrl) {
-        HttpCommandExecutor httpCommandExecutor = new HttpCommandExecutor(remoteUrl);
+        HttpCommandExecutor httpCommandExecutor = new HttpCommandExecutor(Collections.emptyMap(), remoteUrl,
+                CommandMetrics.countBytes(HttpCommandExecutor.getDefaultClientFactory()));
         setRemoteWebDriverProxy(httpCommandExecutor);
-        return new Augmenter().augment(new RemoteWebDriver(httpCommandExecutor, desiredCapabilities));
+        return new Augmenter().augment(new RemoteWebDriver(
+                new InstrumentedCommandExecutor(httpCommandExecutor, commandMetrics), desiredCapabilities));
     }
 
+    /**
+     * Local drivers talking to a driver service, e.g. ChromeDriver, are
+     * RemoteWebDriver instances whose executor can only be replaced through
+     * the protected setter. The session was started already, so only the
+     * command that started it is not counted.
+     */
+    protected void instrumentLocalWebDriver(WebDriver webDriver) {
+        if (!(webDriver instanceof RemoteWebDriver)) {
+            return;
+        }
+        RemoteWebDriver remoteWebDriver = (RemoteWebDriver) webDriver;
+        try {
+            Method method = RemoteWebDriver.class.getDeclaredMethod("setCommandExecutor", CommandExecutor.class);
+            method.setAccessible(true);
+            method.invoke(remoteWebDriver,
+                    new InstrumentedCommandExecutor(remoteWebDriver.getCommandExecutor(), commandMetrics));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logging.debug(String.format("Commands of the browser are not counted: %s", e));
+        }
+    }
+
+    /**
+     * Returns a copy of the cached capabilities for the given settings. The
+     * JSON is only parsed and Firefox profiles are only packaged the first
+     * time the settings are used.
+     */
     protected Capabilities createCapabilities(String browserName, String desiredCapabilitiesString,
             String browserOptions) {
+        Capabilities template = capabilitiesCache.get(
+                Arrays.asList(browserName.toLowerCase(), desiredCapabilitiesString, browserOptions),
+                key -> buildCapabilities(browserName, desiredCapabilitiesString, browserOptions));
+        if (template instanceof AbstractDriverOptions) {
+            // Merging browser options always creates a new instance
+            return template.merge(new ImmutableCapabilities());
+        }
+        return new DesiredCapabilities(template);
+    }
+
+    protected Capabilities buildCapabilities(String browserName, String desiredCapabilitiesString,
+            String browserOptions) {
         MutableCapabilities desiredCapabilities;
         switch (browserName.toLowerCase()) {
         case "ff":
@@ -3,6 +3,7 @@ package com.github.markusbernhardt.seleniumlibrary.keywords;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.openqa.selenium.By;
@@ -16,12 +17,21 @@ import org.robotframework.javalib.annotation.*;
 
 import com.github.markusbernhardt.seleniumlibrary.RunOnFailureKeywordsAdapter;
 import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
+import com.github.markusbernhardt.seleniumlibrary.locators.ElementData;
 import com.github.markusbernhardt.seleniumlibrary.locators.ElementFinder;
+import com.github.markusbernhardt.seleniumlibrary.locators.ElementHandleCache;
+import com.github.markusbernhardt.seleniumlibrary.locators.FrameTextSearch;
+import com.github.markusbernhardt.seleniumlibrary.locators.PageTextSnapshot;
 import com.github.markusbernhardt.seleniumlibrary.utils.Python;
 
 @RobotKeywords
 public class Element extends RunOnFailureKeywordsAdapter {
 
+    /**
+     * Milliseconds between two text searches while the implicit wait lasts
+     */
+    protected static final long TEXT_SEARCH_INTERVAL = 200;
+
     /**
      * Instantiated BrowserManagement keyword bean
      */
@@ -140,6 +150,8 @@ public class Element extends RunOnFailureKeywordsAdapter {
     }
 
     @RobotKeyword("Verify the current page contains ``text``.\n\r"
+            + "\n\r"
+            + "The page and all its frames, including nested frames, are searched. Like element lookups, the text is searched again until the implicit wait set by `Set Selenium Implicit Wait` expires.\n\r"
             + "\n\r"
             + "See `Introduction` for details about log levels.")
     @ArgumentNames({ "text", "logLevel=INFO" })
@@ -154,6 +166,8 @@ public class Element extends RunOnFailureKeywordsAdapter {
     }
 
     @RobotKeyword("Verify the current page does not contain ``text``.\n\r"
+            + "\n\r"
+            + "The page and all its frames, including nested frames, are searched. Like element lookups, the text is searched again until the implicit wait set by `Set Selenium Implicit Wait` expires, so this keyword takes at least the implicit wait to pass.\n\r"
             + "\n\r"
             + "See `Introduction` for details about log levels.")
     @ArgumentNames({ "text", "logLevel=INFO" })
@@ -423,6 +437,40 @@ public class Element extends RunOnFailureKeywordsAdapter {
         return elements.get(0).getAttribute(attributeName);
     }
 
+    @RobotKeyword("Returns the given values of all elements identified by ``locator`` as a list of dictionaries.\r\n" +
+            "\r\n" +
+            "Each dictionary holds the ``*names`` of one element with their values, in the order of the elements in the page. Names are:\r\n" +
+            "| text | The text of the element, like `Get Text` |\r\n" +
+            "| tag | The tag name in lower case |\r\n" +
+            "| @name or attribute:name | The attribute, like `Get Element Attribute` |\r\n" +
+            "| css:name | The computed CSS value, like `Get CSS Value` |\r\n" +
+            "| property:name or any other name | The DOM property |\r\n" +
+            "\r\n" +
+            "All values of all elements are read with one script, instead of one command per element and value. If the browser cannot execute JavaScript, they are read one by one. Returns an empty list if no element is found.\r\n" +
+            "\r\n" +
+            "Example:\r\n" +
+            " | @{rows} = | Get Elements Data | css:table#users tr | text | @data-id | css:color | \r\n" +
+            " | Log | ${rows[0]['text']} | \r\n" +
+            "\r\n" +
+            "Key attributes for arbitrary elements are id and name. See `Introduction` for details about locators.")
+    @ArgumentNames({ "locator", "*names" })
+    public List<Map<String, Object>> getElementsData(String locator, String... names) {
+        if (names.length == 0) {
+            throw new SeleniumLibraryNonFatalException("No value name given.");
+        }
+
+        List<String> nameList = Arrays.asList(names);
+        WebDriver current = browserManagement.getCurrentWebDriver();
+        List<Map<String, Object>> data = ElementData.query(current, locator, nameList);
+        if (data == null) {
+            data = new ArrayList<>();
+            for (WebElement element : elementFind(locator, false, false)) {
+                data.add(ElementData.read(element, nameList));
+            }
+        }
+        return data;
+    }
+
     @RobotKeyword("Clears the text from element identified by ``locator``.\r\n" +
             "\r\n" +
             "This keyword does not execute any checks on whether or not the clear method has succeeded, so if any subsequent checks are needed, they should be executed using method `Element Text Should Be`.\r\n" +
@@ -908,6 +956,21 @@ public class Element extends RunOnFailureKeywordsAdapter {
     }
 
     protected List<WebElement> elementFind(String locator, boolean firstOnly, boolean required, String tag) {
+        if (firstOnly && required && ElementHandleCache.isEnabled()) {
+            WebDriver current = browserManagement.getCurrentWebDriver();
+            WebElement element = ElementHandleCache.find(current, locator, tag, () -> {
+                List<WebElement> found = ElementFinder.find(current, locator, tag);
+                return found.isEmpty() ? null : found.get(0);
+            });
+            if (element == null) {
+                throw new SeleniumLibraryNonFatalException(
+                        String.format("Element locator '%s' did not match any elements.", locator));
+            }
+            List<WebElement> elements = new ArrayList<>();
+            elements.add(element);
+            return elements;
+        }
+
         List<WebElement> elements = ElementFinder.find(browserManagement.getCurrentWebDriver(), locator, tag);
 
         if (required && elements.size() == 0) {
@@ -934,11 +997,19 @@ public class Element extends RunOnFailureKeywordsAdapter {
         logging.info(String.format("Searching for text from frame '%s'.", locator));
         boolean found = isTextPresent(text);
         current.switchTo().defaultContent();
+        ElementHandleCache.selectTopFrame(current);
 
         return found;
     }
 
     protected boolean isTextPresent(String text) {
+        if (PageTextSnapshot.isEnabled()) {
+            PageTextSnapshot snapshot = PageTextSnapshot.take(browserManagement.getCurrentWebDriver());
+            // Without the text, the lookup below waits for it like before
+            if (snapshot != null && (snapshot.documentContains(text) || browserManagement.getImplicitWait() <= 0)) {
+                return snapshot.documentContains(text);
+            }
+        }
         String locator = String.format("xpath://*[contains(., %s)]", escapeXpathValue(text));
 
         return isElementPresent(locator);
@@ -1020,6 +1091,23 @@ public class Element extends RunOnFailureKeywordsAdapter {
 
     protected boolean pageContains(String text) {
         WebDriver current = browserManagement.getCurrentWebDriver();
+        // The script does not wait like the element lookups, so search again
+        // until the implicit wait expires
+        long deadline = System.currentTimeMillis() + (long) (browserManagement.getImplicitWait() * 1000);
+        Boolean searched = FrameTextSearch.pageContains(current, text);
+        while (Boolean.FALSE.equals(searched) && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(Math.min(TEXT_SEARCH_INTERVAL, Math.max(1, deadline - System.currentTimeMillis())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            searched = FrameTextSearch.pageContains(current, text);
+        }
+        ElementHandleCache.selectTopFrame(current);
+        if (searched != null) {
+            return searched;
+        }
         current.switchTo().defaultContent();
 
         if (isTextPresent(text)) {
@@ -5,8 +5,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.python.core.Py;
+import org.python.core.PyObject;
 import org.python.core.PyString;
-import org.python.util.PythonInterpreter;
 import org.robotframework.javalib.annotation.ArgumentNames;
 import org.robotframework.javalib.annotation.Autowired;
 import org.robotframework.javalib.annotation.RobotKeyword;
@@ -14,13 +15,32 @@ import org.robotframework.javalib.annotation.RobotKeywords;
 
 import com.github.markusbernhardt.seleniumlibrary.RunOnFailureKeywordsAdapter;
 import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
+import com.github.markusbernhardt.seleniumlibrary.utils.Robotframework;
 
 @RobotKeywords
 public class Logging extends RunOnFailureKeywordsAdapter {
 
     protected final static Map<String, String[]> VALID_LOG_LEVELS;
+    protected final static Map<String, Integer> LOG_LEVEL_SEVERITIES;
     protected static String logDir = null;
 
+    /**
+     * The log directory resolved from Robot Framework, reset when a suite starts
+     */
+    protected static volatile File resolvedLogDir = null;
+
+    /**
+     * Severity of the least severe log level that is written
+     */
+    protected static volatile int logLevelThreshold = 0;
+
+    /**
+     * Buffered messages are written to stdout once they exceed this size
+     */
+    protected final static int MAX_BUFFER_SIZE = 64 * 1024;
+
+    protected final static ThreadLocal<LogBuffer> logBuffer = ThreadLocal.withInitial(LogBuffer::new);
+
     static {
         VALID_LOG_LEVELS = new HashMap<>();
         VALID_LOG_LEVELS.put("debug", new String[] { "debug", "" });
@@ -29,6 +49,14 @@ public class Logging extends RunOnFailureKeywordsAdapter {
         VALID_LOG_LEVELS.put("trace", new String[] { "trace", "" });
         VALID_LOG_LEVELS.put("warn", new String[] { "warn", "" });
         VALID_LOG_LEVELS.put("error", new String[] { "error", "" });
+
+        LOG_LEVEL_SEVERITIES = new HashMap<>();
+        LOG_LEVEL_SEVERITIES.put("trace", 0);
+        LOG_LEVEL_SEVERITIES.put("debug", 1);
+        LOG_LEVEL_SEVERITIES.put("info", 2);
+        LOG_LEVEL_SEVERITIES.put("html", 2);
+        LOG_LEVEL_SEVERITIES.put("warn", 3);
+        LOG_LEVEL_SEVERITIES.put("error", 4);
     }
 
     /**
@@ -158,10 +186,69 @@ public class Logging extends RunOnFailureKeywordsAdapter {
         }
     }
 
+    @RobotKeyword("Sets the least severe ``logLevel`` written by SeleniumLibrary and returns the previous one.\r\n" +
+            "\r\n" +
+            "Messages below this level are dropped before they are formatted, which saves time in keywords that log a lot, e.g. `Wait Until Page Contains` with a short polling interval. The default is TRACE, i.e. everything is passed on to Robot Framework, which applies its own log level afterwards.\r\n" +
+            "\r\n" +
+            "See `Introduction` for details about the ``logLevel``.\r\n" +
+            "\r\n" +
+            "Example:\r\n" +
+            " | ${previous}= | Set Library Log Level | INFO | \r\n" +
+            " | Wait Until Page Contains | Done | \r\n" +
+            " | Set Library Log Level | ${previous} | ")
+    @ArgumentNames({ "logLevel" })
+    public String setLibraryLogLevel(String logLevel) {
+        Integer severity = LOG_LEVEL_SEVERITIES.get(logLevel.toLowerCase());
+        if (severity == null) {
+            throw new SeleniumLibraryNonFatalException(String.format("Given log level %s is invalid.", logLevel));
+        }
+        String previous = getLibraryLogLevel();
+        logLevelThreshold = severity;
+        return previous;
+    }
+
     // ##############################
     // Internal Methods
     // ##############################
 
+    public static String getLibraryLogLevel() {
+        switch (logLevelThreshold) {
+        case 0:
+            return "TRACE";
+        case 1:
+            return "DEBUG";
+        case 2:
+            return "INFO";
+        case 3:
+            return "WARN";
+        default:
+            return "ERROR";
+        }
+    }
+
+    protected boolean isLogLevelEnabled(String logLevel) {
+        Integer severity = LOG_LEVEL_SEVERITIES.get(logLevel.toLowerCase());
+        return severity != null && severity >= logLevelThreshold;
+    }
+
+    protected void trace(String format, Object... args) {
+        if (isLogLevelEnabled("trace")) {
+            trace(String.format(format, args));
+        }
+    }
+
+    protected void debug(String format, Object... args) {
+        if (isLogLevelEnabled("debug")) {
+            debug(String.format(format, args));
+        }
+    }
+
+    protected void info(String format, Object... args) {
+        if (isLogLevelEnabled("info")) {
+            info(String.format(format, args));
+        }
+    }
+
     protected void trace(String msg) {
         log(msg, "trace");
     }
@@ -188,36 +275,113 @@ public class Logging extends RunOnFailureKeywordsAdapter {
 
     protected void log(String msg, String logLevel) {
         String[] methodParameters = VALID_LOG_LEVELS.get(logLevel.toLowerCase());
-        if (methodParameters != null) {
-            System.out.printf("*%s* %s%n", logLevel.toUpperCase(), msg);
-        } else {
+        if (methodParameters == null) {
             throw new SeleniumLibraryNonFatalException(String.format("Given log level %s is invalid.", logLevel));
         }
+        if (isLogLevelEnabled(logLevel)) {
+            logBuffer.get().append(logLevel.toUpperCase(), msg);
+        }
+    }
+
+    /**
+     * Writes a warning of code without a Logging bean, e.g. the locator
+     * parser, in order with the buffered messages of the current thread.
+     */
+    public static void warning(String msg) {
+        if (LOG_LEVEL_SEVERITIES.get("warn") >= logLevelThreshold) {
+            logBuffer.get().append("WARN", msg);
+        }
+    }
+
+    /**
+     * Starts buffering the messages of the current thread for a keyword until
+     * the matching {@link #endBuffering()}. Robot Framework reads the messages
+     * of a library keyword from stdout after the keyword returns, so writing
+     * them all at once does not change the log. Messages of an outer keyword
+     * are written before a nested keyword starts, e.g. the run-on-failure
+     * keyword run through BuiltIn, so Robot Framework attributes them to the
+     * keyword that logged them.
+     */
+    public static void startBuffering() {
+        LogBuffer buffer = logBuffer.get();
+        buffer.flush();
+        buffer.depth++;
+    }
+
+    /**
+     * Writes the buffered messages of the current thread to stdout when a
+     * keyword ends.
+     */
+    public static void endBuffering() {
+        LogBuffer buffer = logBuffer.get();
+        buffer.depth = Math.max(0, buffer.depth - 1);
+        buffer.flush();
     }
 
     protected File getLogDir() {
-        if (logDir == null
-                && !loggingPythonInterpreter.get().eval("EXECUTION_CONTEXTS.current").toString().equals("None")) {
-            PyString logDirName = (PyString) loggingPythonInterpreter.get()
-                    .eval("BuiltIn().get_variables()['${LOG FILE}']");
-            if (logDirName != null && !(logDirName.asString().toUpperCase().equals("NONE"))) {
-                return new File(logDirName.asString()).getParentFile();
-            }
-            logDirName = (PyString) loggingPythonInterpreter.get().eval("BuiltIn().get_variables()['${OUTPUTDIR}']");
-            return new File(logDirName.asString()).getParentFile();
-        } else {
+        if (logDir != null) {
             return new File(logDir);
         }
+        File logDirectory = resolvedLogDir;
+        if (logDirectory == null) {
+            logDirectory = resolveLogDir();
+            resolvedLogDir = logDirectory;
+        }
+        return logDirectory;
     }
 
     public static void setLogDir(String logDirectory) {
         logDir = logDirectory;
     }
 
-    protected static ThreadLocal<PythonInterpreter> loggingPythonInterpreter = ThreadLocal.withInitial(() -> {
-        PythonInterpreter pythonInterpreter = new PythonInterpreter();
-        pythonInterpreter.exec(
-                "from robot.libraries.BuiltIn import BuiltIn; from robot.running.context import EXECUTION_CONTEXTS; from robot.api import logger;");
-        return pythonInterpreter;
-    });
+    /**
+     * Forgets the log directory resolved from Robot Framework. Called when a
+     * suite starts.
+     */
+    public static void invalidateLogDir() {
+        resolvedLogDir = null;
+    }
+
+    /**
+     * Reads ${LOG FILE} or ${OUTPUTDIR} from the running Robot Framework
+     * without starting a Python interpreter. Falls back to the working
+     * directory outside of Robot Framework.
+     */
+    protected static File resolveLogDir() {
+        PyObject builtIn = Robotframework.getBuiltIn();
+        if (builtIn == null) {
+            return new File(".").getAbsoluteFile();
+        }
+        PyObject logFile = builtIn.invoke("get_variable_value", new PyString("${LOG FILE}"));
+        if (logFile != Py.None && !logFile.toString().toUpperCase().equals("NONE")) {
+            return new File(logFile.toString()).getParentFile();
+        }
+        PyObject outputDir = builtIn.invoke("get_variable_value", new PyString("${OUTPUTDIR}"));
+        return new File(outputDir.toString()).getParentFile();
+    }
+
+    /**
+     * Messages of one thread waiting to be written to stdout
+     */
+    protected static class LogBuffer {
+
+        protected final StringBuilder messages = new StringBuilder();
+
+        protected int depth;
+
+        protected void append(String logLevel, String msg) {
+            messages.append('*').append(logLevel).append("* ").append(msg).append(System.lineSeparator());
+            if (depth == 0 || messages.length() > MAX_BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        protected void flush() {
+            if (messages.length() > 0) {
+                System.out.print(messages);
+                System.out.flush();
+                messages.setLength(0);
+            }
+        }
+    }
 }
@@ -1,12 +1,18 @@
 package com.github.markusbernhardt.seleniumlibrary.keywords;
 
-import org.python.util.PythonInterpreter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.python.core.PyObject;
+import org.python.core.PyString;
 import org.robotframework.javalib.annotation.ArgumentNames;
 import org.robotframework.javalib.annotation.Autowired;
 import org.robotframework.javalib.annotation.RobotKeyword;
 import org.robotframework.javalib.annotation.RobotKeywords;
 
 import com.github.markusbernhardt.seleniumlibrary.RunOnFailureKeywordsAdapter;
+import com.github.markusbernhardt.seleniumlibrary.utils.Robotframework;
 
 @RobotKeywords
 public class RunOnFailure extends RunOnFailureKeywordsAdapter {
@@ -21,6 +27,29 @@ public class RunOnFailure extends RunOnFailureKeywordsAdapter {
 	 */
 	protected boolean runningOnFailureRoutine;
 
+	/**
+	 * Minimum time between two runs in milliseconds, 0 for no limit
+	 */
+	protected long minInterval = 0;
+
+	/**
+	 * Maximum number of runs per test, 0 for no limit
+	 */
+	protected int maxPerTest = 0;
+
+	/**
+	 * Start of the last run in milliseconds, 0 if there was none yet
+	 */
+	protected long lastRun = 0;
+
+	protected int runsInCurrentTest = 0;
+
+	protected final AtomicLong failures = new AtomicLong();
+
+	protected final AtomicLong runs = new AtomicLong();
+
+	protected final AtomicLong suppressed = new AtomicLong();
+
 	/**
 	 * Instantiated Logging keyword bean
 	 */
@@ -57,15 +86,57 @@ public class RunOnFailure extends RunOnFailureKeywordsAdapter {
 		return oldKeywordText;
 	}
 
+	@RobotKeyword("Limits how often the keyword registered with `Register Keyword To Run On Failure` is run.\r\n" +
+	        "\r\n" +
+	        "After a run, further failures within ``min_interval`` do not trigger the keyword again. ``max_per_test`` limits the number of runs in one test. ``0`` means no limit for both, which is the default.\r\n" +
+	        "\r\n" +
+	        "Use `Get Run On Failure Counters` to see how many runs were suppressed.\r\n" +
+	        "\r\n" +
+	        "Example:\r\n" +
+	        " | Set Run On Failure Policy | min_interval=10 seconds | max_per_test=1 | # At most one screenshot per test. |")
+	@ArgumentNames({ "min_interval=0", "max_per_test=0" })
+	public void setRunOnFailurePolicy(String minInterval, int maxPerTest) {
+		synchronized (this) {
+			this.minInterval = (long) (Robotframework.timestrToSecs(minInterval) * 1000);
+			this.maxPerTest = maxPerTest;
+		}
+	}
+
+	@RobotKeyword("Returns a dictionary with the number of SeleniumLibrary keyword ``failures``, the ``runs`` of the run-on-failure keyword and the runs ``suppressed`` by `Set Run On Failure Policy`.")
+	public Map<String, Long> getRunOnFailureCounters() {
+		Map<String, Long> counters = new LinkedHashMap<>();
+		counters.put("failures", failures.get());
+		counters.put("runs", runs.get());
+		counters.put("suppressed", suppressed.get());
+		return counters;
+	}
+
 	// ##############################
 	// Internal Methods
 	// ##############################
 
-	protected static ThreadLocal<PythonInterpreter> runOnFailurePythonInterpreter = ThreadLocal.withInitial(() -> {
-		PythonInterpreter pythonInterpreter = new PythonInterpreter();
-		pythonInterpreter.exec("from robot.libraries.BuiltIn import BuiltIn; from robot.running.context import EXECUTION_CONTEXTS; BIN = BuiltIn();");
-		return pythonInterpreter;
-	});
+	/**
+	 * Starts counting the runs of a new test
+	 */
+	public synchronized void startTest(String name) {
+		runsInCurrentTest = 0;
+	}
+
+	/**
+	 * Returns whether the policy allows a run now and accounts for it
+	 */
+	protected synchronized boolean acquireRun() {
+		long now = System.currentTimeMillis();
+		if (maxPerTest > 0 && runsInCurrentTest >= maxPerTest) {
+			return false;
+		}
+		if (minInterval > 0 && lastRun != 0 && now - lastRun < minInterval) {
+			return false;
+		}
+		runsInCurrentTest++;
+		lastRun = now;
+		return true;
+	}
 
 	public void runOnFailure() {
 		if (runOnFailureKeyword == null) {
@@ -74,15 +145,22 @@ public class RunOnFailure extends RunOnFailureKeywordsAdapter {
 		if (runningOnFailureRoutine) {
 			return;
 		}
-		if(runOnFailurePythonInterpreter.get().eval("EXECUTION_CONTEXTS.current").toString().equals("None")) {
+		PyObject builtIn = Robotframework.getBuiltIn();
+		if (builtIn == null) {
+			return;
+		}
+		failures.incrementAndGet();
+		if (!acquireRun()) {
+			suppressed.incrementAndGet();
+			logging.debug("Keyword '%s' is not run on failure because of the run-on-failure policy",
+					runOnFailureKeyword);
 			return;
 		}
+		runs.incrementAndGet();
 		runningOnFailureRoutine = true;
 		
 		try {
-			runOnFailurePythonInterpreter.get().exec(
-					String.format("BIN.run_keyword('%s')",
-							runOnFailureKeyword.replace("'", "\\'").replace("\n", "\\n")));
+			builtIn.invoke("run_keyword", new PyString(runOnFailureKeyword));
 		} catch (RuntimeException r) {
 			logging.warn(String.format("Keyword '%s' could not be run on failure%s", runOnFailureKeyword,
 					r.getMessage() != null ? " '" + r.getMessage() + "'" : ""));
@@ -1,19 +1,22 @@
 package com.github.markusbernhardt.seleniumlibrary.keywords;
 
 import com.github.markusbernhardt.seleniumlibrary.RunOnFailureKeywordsAdapter;
+import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
 import com.github.markusbernhardt.seleniumlibrary.utils.Robotframework;
-import org.apache.commons.lang3.exception.ExceptionUtils;
+import com.github.markusbernhardt.seleniumlibrary.utils.ScreenshotWriter;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
 import org.robotframework.javalib.annotation.ArgumentNames;
 import org.robotframework.javalib.annotation.Autowired;
 import org.robotframework.javalib.annotation.RobotKeyword;
 import org.robotframework.javalib.annotation.RobotKeywords;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.function.Function;
 
 @RobotKeywords
 public class Screenshot extends RunOnFailureKeywordsAdapter {
@@ -31,9 +34,20 @@ public class Screenshot extends RunOnFailureKeywordsAdapter {
 	protected Logging logging;
 	
 	@Autowired Robot robot;
+
+	/**
+	 * Instantiated Element keyword bean
+	 */
+	@Autowired
+	protected Element element;
 	
 	private static File screenshotDir = null;
 
+	/**
+	 * Writes the screenshots of all library instances
+	 */
+	protected static final ScreenshotWriter screenshotWriter = new ScreenshotWriter();
+
 	// ##############################
 	// Keywords
 	// ##############################
@@ -59,18 +73,88 @@ public class Screenshot extends RunOnFailureKeywordsAdapter {
 			"A CSS can be used to modify how the screenshot is taken. By default the background color is changed to avoid possible problems with background leaking when the page layout is somehow broken.")
 	@ArgumentNames({"filename=selenium-screenshot-{index}.png"})
 	public void capturePageScreenshot(String filename) {
+		captureScreenshot(filename, webDriver -> ((TakesScreenshot) webDriver).getScreenshotAs(OutputType.BYTES));
+	}
+
+	@RobotKeyword("Take a screenshot of the element identified by ``locator`` and embed it into the log.\r\n" +
+			"\r\n" +
+			"Only the element is transferred from the browser, which is much smaller and faster than a screenshot of the whole page. The ``filename`` argument works like with `Capture Page Screenshot`.\r\n" +
+			"\r\n" +
+			"See `Introduction` for details about locators.")
+	@ArgumentNames({"locator", "filename=selenium-element-screenshot-{index}.png"})
+	public void captureElementScreenshot(String locator, String filename) {
+		WebElement webElement = element.elementFind(locator, true, true).get(0);
+		captureScreenshot(filename, webDriver -> webElement.getScreenshotAs(OutputType.BYTES));
+	}
+
+	@RobotKeyword("Take a screenshot of a region of the current page and embed it into the log.\r\n" +
+			"\r\n" +
+			"The region starts at ``x`` and ``y`` and has the given ``width`` and ``height``, all in CSS pixels relative to the viewport. Parts outside the viewport are cut off. The ``filename`` argument works like with `Capture Page Screenshot`.\r\n" +
+			"\r\n" +
+			"Example:\r\n" +
+			" | Capture Region Screenshot | 0 | 0 | 400 | 300 | ")
+	@ArgumentNames({"x", "y", "width", "height", "filename=selenium-region-screenshot-{index}.png"})
+	public void captureRegionScreenshot(int x, int y, int width, int height, String filename) {
+		captureScreenshot(filename, webDriver -> {
+			byte[] png = ((TakesScreenshot) webDriver).getScreenshotAs(OutputType.BYTES);
+			double ratio = getDevicePixelRatio(webDriver);
+			try {
+				return ScreenshotWriter.crop(png, (int) Math.round(x * ratio), (int) Math.round(y * ratio),
+						(int) Math.round(width * ratio), (int) Math.round(height * ratio));
+			} catch (IOException | IllegalArgumentException e) {
+				throw new SeleniumLibraryNonFatalException(
+						String.format("Can't capture region %d, %d, %d, %d: %s", x, y, width, height, e.getMessage()));
+			}
+		});
+	}
+
+	@RobotKeyword("Configures how captured screenshots are written to disk.\r\n" +
+			"\r\n" +
+			"If ``asynchronous`` is true, screenshots are written by a background thread and the capturing keyword returns right after the screenshot is taken. At most 8 screenshots wait to be written, further ones are written directly. Pending screenshots are written when a suite ends, so the links in the log stay valid. Use `Flush Screenshots` if a later keyword reads the files.\r\n" +
+			"\r\n" +
+			"Screenshots wider than ``max_width`` pixels are scaled down to that width before they are written. ``0`` keeps the original size.\r\n" +
+			"\r\n" +
+			"If ``skip_duplicates`` is true, a screenshot with a name containing {index} that is identical to the previous one is not written again. The log links to the file of the previous screenshot instead.\r\n" +
+			"\r\n" +
+			"Example:\r\n" +
+			" | Set Screenshot Writing | asynchronous=True | max_width=1280 | skip_duplicates=True | ")
+	@ArgumentNames({ "asynchronous=False", "max_width=0", "skip_duplicates=False" })
+	public void setScreenshotWriting(String asynchronous, String maxWidth, String skipDuplicates) {
+		screenshotWriter.configure("true".equalsIgnoreCase(asynchronous), Integer.parseInt(maxWidth),
+				"true".equalsIgnoreCase(skipDuplicates));
+		logReportedFailures();
+	}
+
+	@RobotKeyword("Waits until all screenshots captured so far are written to disk.\r\n" +
+			"\r\n" +
+			"Only needed with asynchronous writing, see `Set Screenshot Writing`.")
+	public void flushScreenshots() {
+		screenshotWriter.flush();
+		logReportedFailures();
+	}
+
+	// ##############################
+	// Internal Methods
+	// ##############################
+
+	protected int screenshotIndex = 0;
+
+	/**
+	 * Captures a screenshot with the given function, writes it to the file
+	 * and embeds it into the log.
+	 */
+	protected void captureScreenshot(String filename, Function<WebDriver, byte[]> capture) {
 		File logdir = screenshotDir != null ? screenshotDir : logging.getLogDir();
+		boolean indexed = filename == null || filename.contains("{index}");
 		File path = new File(logdir, normalizeFilename(filename));
-		String link = Robotframework.getLinkPath(path, logdir);
 		WebDriver currentWebDriver = browserManagement.getCurrentWebDriver();
 
 		if (currentWebDriver.getClass().toString().contains("HtmlUnit")) {
 		    logging.warn("HTMLunit is not supporting screenshots.");
 		} else {
 		    try {
-		        TakesScreenshot takesScreenshot = ((TakesScreenshot) currentWebDriver);
-		        byte[] png = takesScreenshot.getScreenshotAs(OutputType.BYTES);
-	            writeScreenshot(path, png);
+		        byte[] png = capture.apply(currentWebDriver);
+	            String link = Robotframework.getLinkPath(writeScreenshot(path, png, indexed), logdir);
 	    
 	            logging.html(String.format(
 	                    "</td></tr><tr><td colspan=\"3\"><a href=\"%s\"><img src=\"%s\" width=\"800px\"></a>", link, link));
@@ -80,30 +164,39 @@ public class Screenshot extends RunOnFailureKeywordsAdapter {
 		}
 	}
 
-	// ##############################
-	// Internal Methods
-	// ##############################
+	/**
+	 * Returns the number of screenshot pixels per CSS pixel
+	 */
+	protected static double getDevicePixelRatio(WebDriver webDriver) {
+		if (webDriver instanceof JavascriptExecutor) {
+			Object ratio = ((JavascriptExecutor) webDriver).executeScript("return window.devicePixelRatio || 1;");
+			if (ratio instanceof Number && ((Number) ratio).doubleValue() > 0) {
+				return ((Number) ratio).doubleValue();
+			}
+		}
+		return 1;
+	}
 
-	protected int screenshotIndex = 0;
+	/**
+	 * Waits until all pending screenshots are written. Called when a suite
+	 * ends.
+	 */
+	public static void flushPendingScreenshots() {
+		screenshotWriter.flush();
+		for (String failure : screenshotWriter.pollFailures()) {
+			System.err.println(failure);
+		}
+	}
 
-	protected void writeScreenshot(File path, byte[] png) {
-		FileOutputStream fos = null;
-		try {
-		    path.getParentFile().mkdirs();
-			fos = new FileOutputStream(path);
-			fos.write(png);
-			fos.flush();
-		} catch (IOException e) {
-			logging.warn(String.format("Can't write screenshot '%s'", path.getAbsolutePath()));
-			logging.debug(ExceptionUtils.getStackTrace(e));
-		} finally {
-			if (fos != null) {
-				try {
-					fos.close();
-				} catch (IOException e) {
-					logging.warn("Can't even close stream");
-				}
-			}
+	protected File writeScreenshot(File path, byte[] png, boolean mayBeSkipped) {
+		File written = screenshotWriter.write(path, png, mayBeSkipped);
+		logReportedFailures();
+		return written;
+	}
+
+	protected void logReportedFailures() {
+		for (String failure : screenshotWriter.pollFailures()) {
+			logging.warn(failure);
 		}
 	}
 
@@ -6,7 +6,10 @@ import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.Select;
 import org.robotframework.javalib.annotation.ArgumentNames;
@@ -21,12 +24,90 @@ import com.github.markusbernhardt.seleniumlibrary.utils.Python;
 @RobotKeywords
 public class SelectElement extends RunOnFailureKeywordsAdapter {
 
+	/**
+	 * Reads whether the select list of arguments[0] is a multi-select list and
+	 * the labels, values and selected flags of all its options.
+	 */
+	static final String OPTIONS_SCRIPT = "var select = arguments[0], labels = [], values = [], selected = [];"
+			+ "for (var i = 0; i < select.options.length; i++) {"
+			+ "  var option = select.options[i];"
+			+ "  labels.push(option.text); values.push(option.value); selected.push(option.selected);"
+			+ "}"
+			+ "return [select.multiple, labels, values, selected];";
+
+	/**
+	 * Function selectOptions(select, by, items, stopOnMissing). Selects the
+	 * options of the select list by index, value, label, item for value or
+	 * label, or all for the items like {@link Select} does. Stops at the first
+	 * missing item if stopOnMissing is true. Fires one input and change event
+	 * if the selection changed. Returns the missing items. Returns null
+	 * without selecting anything if the list is disabled or not rendered or
+	 * an option to select is disabled, so the {@link Select} fails like the
+	 * user could not select it.
+	 */
+	static final String SELECT_FUNCTION = "function selectOptions(select, by, items, stopOnMissing) {"
+			+ "  var options = select.options, missing = [], selecting = [], changed = false;"
+			+ "  if (select.disabled || (select.getClientRects && !select.getClientRects().length)) { return null; }"
+			+ "  if (by === 'all') {"
+			+ "    by = 'index'; items = [];"
+			+ "    for (var i = 0; i < options.length; i++) { items.push(i); }"
+			+ "  }"
+			+ "  function find(by, item) {"
+			+ "    var found = [];"
+			+ "    for (var i = 0; i < options.length; i++) {"
+			+ "      var option = options[i];"
+			+ "      if (by === 'value' ? option.getAttribute('value') === item"
+			+ "          : by === 'label' ? option.textContent.replace(/[ \\t\\r\\n]+/g, ' ').replace(/^ | $/g, '') === item"
+			+ "          : option.index === Number(item)) {"
+			+ "        found.push(option);"
+			+ "        if (!select.multiple) { break; }"
+			+ "      }"
+			+ "    }"
+			+ "    return found;"
+			+ "  }"
+			+ "  for (var i = 0; i < items.length; i++) {"
+			+ "    var found = find(by === 'item' ? 'value' : by, items[i]);"
+			+ "    if (!found.length && by === 'item') { found = find('label', items[i]); }"
+			+ "    if (!found.length) {"
+			+ "      missing.push(String(items[i]));"
+			+ "      if (stopOnMissing) { break; }"
+			+ "    }"
+			+ "    for (var j = 0; j < found.length; j++) {"
+			+ "      if (found[j].disabled) { return null; }"
+			+ "      selecting.push(found[j]);"
+			+ "    }"
+			+ "  }"
+			+ "  for (var i = 0; i < selecting.length; i++) {"
+			+ "    if (!selecting[i].selected) { selecting[i].selected = true; changed = true; }"
+			+ "  }"
+			+ "  if (changed) {"
+			+ "    ['input', 'change'].forEach(function (type) {"
+			+ "      var event = select.ownerDocument.createEvent('HTMLEvents');"
+			+ "      event.initEvent(type, true, false);"
+			+ "      select.dispatchEvent(event);"
+			+ "    });"
+			+ "  }"
+			+ "  return missing;"
+			+ "}";
+
+	/**
+	 * Runs selectOptions() with arguments[0] to arguments[3]
+	 */
+	static final String SELECT_SCRIPT = SELECT_FUNCTION
+			+ "return selectOptions(arguments[0], arguments[1], arguments[2], arguments[3]);";
+
 	/**
 	 * Instantiated Element keyword bean
 	 */
 	@Autowired
 	protected Element element;
 
+	/**
+	 * Instantiated BrowserManagement keyword bean
+	 */
+	@Autowired
+	protected BrowserManagement browserManagement;
+
 	/**
 	 * Instantiated Logging keyword bean
 	 */
@@ -44,9 +125,7 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 			+ "Select list keywords work on both lists and combo boxes. Key attributes for select lists are id and name. See `Introduction` for details about locators.")
 	@ArgumentNames({ "locator" })
 	public List<String> getListItems(String locator) {
-		List<WebElement> options = getSelectListOptions(locator);
-
-		return getLabelsForOptions(options);
+		return readSelectList(locator).labels;
 	}
 
 	@RobotKeyword("Returns the visible label of the first selected element from the select list identified by ``locator``.\r\n"
@@ -54,9 +133,7 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 			+ "Select list keywords work on both lists and combo boxes. Key attributes for select lists are id and name. See `Introduction` for details about locators.")
 	@ArgumentNames({ "locator" })
 	public String getSelectedListLabel(String locator) {
-		Select select = getSelectList(locator);
-
-		return select.getFirstSelectedOption().getText();
+		return readSelectList(locator).getFirstSelected(true);
 	}
 
 	@RobotKeyword("Returns the visible labels of the first selected element from the select list identified by ``locator``.\r\n"
@@ -64,14 +141,14 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 			+ "Select list keywords work on both lists and combo boxes. Key attributes for select lists are id and name. See `Introduction` for details about locators.")
 	@ArgumentNames({ "locator" })
 	public List<String> getSelectedListLabels(String locator) {
-		List<WebElement> options = getSelectListOptionsSelected(locator);
+		List<String> labels = readSelectList(locator).getSelected(true);
 
-		if (options.size() == 0) {
+		if (labels.size() == 0) {
 			throw new SeleniumLibraryNonFatalException(
 					String.format("Select list with locator '%s' does not have any selected values.", locator));
 		}
 
-		return getLabelsForOptions(options);
+		return labels;
 	}
 
 	@RobotKeyword("Returns the value of the first selected element from the select list identified by ``locator``.\r\n"
@@ -79,9 +156,7 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 			+ "Select list keywords work on both lists and combo boxes. Key attributes for select lists are id and name. See `Introduction` for details about locators.")
 	@ArgumentNames({ "locator" })
 	public String getSelectedListValue(String locator) {
-		Select select = getSelectList(locator);
-
-		return select.getFirstSelectedOption().getAttribute("value");
+		return readSelectList(locator).getFirstSelected(false);
 	}
 
 	@RobotKeyword("Returns the values of the first selected element as a list from the select list identified by ``locator``.\r\n"
@@ -91,14 +166,14 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 			+ "Select list keywords work on both lists and combo boxes. Key attributes for select lists are id and name. See `Introduction` for details about locators.")
 	@ArgumentNames({ "locator" })
 	public List<String> getSelectedListValues(String locator) {
-		List<WebElement> options = getSelectListOptionsSelected(locator);
+		List<String> values = readSelectList(locator).getSelected(false);
 
-		if (options.size() == 0) {
+		if (values.size() == 0) {
 			throw new SeleniumLibraryNonFatalException(
 					String.format("Select list with locator '%s' does not have any selected values.", locator));
 		}
 
-		return getValuesForOptions(options);
+		return values;
 	}
 
 	@RobotKeyword("Verify the selection of the select list identified by ``locator``.\r\n" + "\r\n"
@@ -112,14 +187,14 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 
 		pageShouldContainList(locator, "" , "INFO");
 
-		List<WebElement> options = getSelectListOptionsSelected(locator);
-		List<String> selectedLabels = getLabelsForOptions(options);
+		SelectListOptions options = readSelectList(locator);
+		List<String> selectedLabels = options.getSelected(true);
 		String message = String.format("List '%s' should have had selection [ %s ] but it was [ %s ].", locator,
 				StringUtils.join(items, " | "), StringUtils.join(selectedLabels, " | "));
-		if (items.length != options.size()) {
+		if (items.length != selectedLabels.size()) {
 			throw new SeleniumLibraryNonFatalException(message);
 		} else {
-			List<String> selectedValues = getValuesForOptions(options);
+			List<String> selectedValues = options.getSelected(false);
 
 			for (String item : items) {
 				if (!selectedValues.contains(item) && !selectedLabels.contains(item)) {
@@ -135,9 +210,8 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 	public void listShouldHaveNoSelections(String locator) {
 		logging.info(String.format("Verifying list '%s' has no selection.", locator));
 
-		List<WebElement> options = getSelectListOptionsSelected(locator);
-		if (!options.isEmpty()) {
-			List<String> selectedLabels = getLabelsForOptions(options);
+		List<String> selectedLabels = readSelectList(locator).getSelected(true);
+		if (!selectedLabels.isEmpty()) {
 			String items = StringUtils.join(selectedLabels, " | ");
 			throw new SeleniumLibraryNonFatalException(
 					String.format("List '%s' should have had no selection (selection was [ %s ]).", locator, items));
@@ -164,15 +238,13 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 	public void selectAllFromList(String locator) {
 		logging.info(String.format("Selecting all options from list '%s'.", locator));
 
-		Select select = getSelectList(locator);
-		if (!isMultiselectList(select)) {
+		WebElement list = findSelectList(locator);
+		if (!readSelectList(list).multiple) {
 			throw new SeleniumLibraryNonFatalException(
 					"Keyword 'Select all from list' works only for multiselect lists.");
 		}
 
-		for (int i = 0; i < select.getOptions().size(); i++) {
-			select.selectByIndex(i);
-		}
+		selectAll(locator, list);
 	}
 
 	@RobotKeyword("Select the given ``*items`` of the multi-select list identified by ``locator``.\r\n" + "\r\n"
@@ -185,37 +257,36 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 				: "all options";
 		logging.info(String.format("Selecting %s from list '%s'.", itemList, locator));
 
-		Select select = getSelectList(locator);
+		WebElement list = findSelectList(locator);
 
 		// If no items given, select all values (of in case of single select
 		// list, go through all values)
 		if (items.length == 0) {
-			for (int i = 0; i < select.getOptions().size(); i++) {
-				select.selectByIndex(i);
-			}
+			selectAll(locator, list);
 			return;
 		}
 
-		boolean lastItemFound = false;
-		List<String> nonExistingItems = new ArrayList<>();
-		for (String item : items) {
-			lastItemFound = true;
-			try {
-				select.selectByValue(item);
-			} catch (NoSuchElementException e1) {
+		List<String> nonExistingItems = selectOptions(list, "item", Arrays.asList(items), false);
+		if (nonExistingItems == null) {
+			Select select = new Select(list);
+			nonExistingItems = new ArrayList<>();
+			for (String item : items) {
 				try {
-					select.selectByVisibleText(item);
-				} catch (NoSuchElementException e2) {
-					nonExistingItems.add(item);
-					lastItemFound = false;
-					continue;
+					select.selectByValue(item);
+				} catch (NoSuchElementException e1) {
+					try {
+						select.selectByVisibleText(item);
+					} catch (NoSuchElementException e2) {
+						nonExistingItems.add(item);
+					}
 				}
 			}
 		}
+		boolean lastItemFound = !nonExistingItems.contains(items[items.length - 1]);
 
 		if (nonExistingItems.size() != 0) {
 			// multi-selection list => throw immediately
-			if (select.isMultiple()) {
+			if (readSelectList(list).multiple) {
 				throw new SeleniumLibraryNonFatalException(
 						String.format("Options '%s' not in list '%s'.", StringUtils.join(nonExistingItems, ", "), locator));
 			}
@@ -247,9 +318,19 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 		String items = String.format("index(es) '%s'", StringUtils.join(tmp, ", "));
 		logging.info(String.format("Selecting %s from list '%s'.", items, locator));
 
-		Select select = getSelectList(locator);
+		List<Integer> indexList = new ArrayList<>();
 		for (String index : indexes) {
-			select.selectByIndex(Integer.parseInt(index));
+			indexList.add(Integer.parseInt(index));
+		}
+		WebElement list = findSelectList(locator);
+		List<String> missing = selectOptions(list, "index", indexList, true);
+		if (missing == null) {
+			Select select = new Select(list);
+			for (int index : indexList) {
+				select.selectByIndex(index);
+			}
+		} else if (!missing.isEmpty()) {
+			throw new NoSuchElementException("Cannot locate option with index: " + missing.get(0));
 		}
 	}
 
@@ -264,9 +345,15 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 		String items = String.format("value(s) '%s'", StringUtils.join(values, ", "));
 		logging.info(String.format("Selecting %s from list '%s'.", items, locator));
 
-		Select select = getSelectList(locator);
-		for (String value : values) {
-			select.selectByValue(value);
+		WebElement list = findSelectList(locator);
+		List<String> missing = selectOptions(list, "value", Arrays.asList(values), true);
+		if (missing == null) {
+			Select select = new Select(list);
+			for (String value : values) {
+				select.selectByValue(value);
+			}
+		} else if (!missing.isEmpty()) {
+			throw new NoSuchElementException("Cannot locate option with value: " + missing.get(0));
 		}
 	}
 
@@ -281,9 +368,15 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 		String items = String.format("label(s) '%s'", StringUtils.join(labels, ", "));
 		logging.info(String.format("Selecting %s from list '%s'.", items, locator));
 
-		Select select = getSelectList(locator);
-		for (String label : labels) {
-			select.selectByVisibleText(label);
+		WebElement list = findSelectList(locator);
+		List<String> missing = selectOptions(list, "label", Arrays.asList(labels), true);
+		if (missing == null) {
+			Select select = new Select(list);
+			for (String label : labels) {
+				select.selectByVisibleText(label);
+			}
+		} else if (!missing.isEmpty()) {
+			throw new NoSuchElementException("Cannot locate element with text: " + missing.get(0));
 		}
 	}
 
@@ -405,9 +498,86 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 	}
 
 	protected Select getSelectList(String locator) {
+		return new Select(findSelectList(locator));
+	}
+
+	protected WebElement findSelectList(String locator) {
 		List<WebElement> webElements = element.elementFind(locator, true, true, "select");
 
-		return new Select(webElements.get(0));
+		return webElements.get(0);
+	}
+
+	protected SelectListOptions readSelectList(String locator) {
+		return readSelectList(findSelectList(locator));
+	}
+
+	/**
+	 * Reads all options of the select list with one script, or option by
+	 * option if the browser cannot execute it.
+	 */
+	protected SelectListOptions readSelectList(WebElement list) {
+		WebDriver webDriver = browserManagement.getCurrentWebDriver();
+		if (webDriver instanceof JavascriptExecutor) {
+			try {
+				List<?> result = (List<?>) ((JavascriptExecutor) webDriver).executeScript(OPTIONS_SCRIPT, list);
+				List<Boolean> selected = new ArrayList<>();
+				for (Object flag : (List<?>) result.get(3)) {
+					selected.add(Boolean.TRUE.equals(flag));
+				}
+				return new SelectListOptions(Boolean.TRUE.equals(result.get(0)), toStrings(result.get(1)),
+						toStrings(result.get(2)), selected);
+			} catch (UnsupportedOperationException | WebDriverException e) {
+				// Fall back to reading the options one by one
+			}
+		}
+
+		Select select = new Select(list);
+		List<WebElement> options = getSelectListOptions(select);
+		List<Boolean> selected = new ArrayList<>();
+		for (WebElement option : options) {
+			selected.add(option.isSelected());
+		}
+		return new SelectListOptions(isMultiselectList(select), getLabelsForOptions(options),
+				getValuesForOptions(options), selected);
+	}
+
+	protected void selectAll(String locator, WebElement list) {
+		if (selectOptions(list, "all", Collections.emptyList(), false) == null) {
+			Select select = new Select(list);
+			int size = select.getOptions().size();
+			for (int i = 0; i < size; i++) {
+				select.selectByIndex(i);
+			}
+		}
+	}
+
+	/**
+	 * Selects the options for all items with one script. Returns the items
+	 * without option, or null if the browser cannot execute the script or
+	 * the selection has to be done by {@link Select}.
+	 */
+	protected List<String> selectOptions(WebElement list, String by, List<?> items,
+			boolean stopOnMissing) {
+		WebDriver webDriver = browserManagement.getCurrentWebDriver();
+		if (!(webDriver instanceof JavascriptExecutor)) {
+			return null;
+		}
+
+		Object missing;
+		try {
+			missing = ((JavascriptExecutor) webDriver).executeScript(SELECT_SCRIPT, list, by, items, stopOnMissing);
+		} catch (UnsupportedOperationException | WebDriverException e) {
+			return null;
+		}
+		return missing != null ? toStrings(missing) : null;
+	}
+
+	protected static List<String> toStrings(Object list) {
+		List<String> strings = new ArrayList<>();
+		for (Object item : (List<?>) list) {
+			strings.add(String.valueOf(item));
+		}
+		return strings;
 	}
 
 	protected List<WebElement> getSelectListOptions(Select select) {
@@ -440,4 +610,44 @@ public class SelectElement extends RunOnFailureKeywordsAdapter {
 		return select.isMultiple();
 	}
 
+	/**
+	 * Labels, values and selected flags of all options of a select list
+	 */
+	protected static class SelectListOptions {
+
+		protected final boolean multiple;
+
+		protected final List<String> labels;
+
+		protected final List<String> values;
+
+		protected final List<Boolean> selected;
+
+		protected SelectListOptions(boolean multiple, List<String> labels, List<String> values,
+				List<Boolean> selected) {
+			this.multiple = multiple;
+			this.labels = labels;
+			this.values = values;
+			this.selected = selected;
+		}
+
+		protected List<String> getSelected(boolean byLabel) {
+			List<String> items = new ArrayList<>();
+			for (int i = 0; i < selected.size(); i++) {
+				if (selected.get(i)) {
+					items.add(byLabel ? labels.get(i) : values.get(i));
+				}
+			}
+			return items;
+		}
+
+		protected String getFirstSelected(boolean byLabel) {
+			List<String> items = getSelected(byLabel);
+			if (items.isEmpty()) {
+				throw new NoSuchElementException("No options are selected");
+			}
+			return items.get(0);
+		}
+	}
+
 }
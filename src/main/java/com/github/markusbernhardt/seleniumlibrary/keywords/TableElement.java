@@ -1,8 +1,12 @@
 package com.github.markusbernhardt.seleniumlibrary.keywords;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.robotframework.javalib.annotation.ArgumentNames;
 import org.robotframework.javalib.annotation.Autowired;
@@ -12,6 +16,7 @@ import org.robotframework.javalib.annotation.RobotKeywords;
 import com.github.markusbernhardt.seleniumlibrary.RunOnFailureKeywordsAdapter;
 import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
 import com.github.markusbernhardt.seleniumlibrary.locators.TableElementFinder;
+import com.github.markusbernhardt.seleniumlibrary.locators.TableSnapshot;
 
 @RobotKeywords
 public class TableElement extends RunOnFailureKeywordsAdapter {
@@ -42,6 +47,16 @@ public class TableElement extends RunOnFailureKeywordsAdapter {
 	        "Key attributes for tables are id and name. See `Introduction` for details about locators and log levels.")
 	@ArgumentNames({ "tableLocator", "row", "column", "logLevel=INFO" })
 	public String getTableCell(String tableLocator, int row, int column, String logLevel) {
+		List<TableSnapshot> snapshots = takeSnapshots(tableLocator);
+		if (snapshots != null) {
+			String content = snapshots.isEmpty() ? null : snapshots.get(0).getCell(row, column);
+			if (content != null) {
+				return content;
+			}
+			logging.logSource(logLevel);
+			throw new SeleniumLibraryNonFatalException(String.format(
+					"Cell in table %s in row #%d and column #%d could not be found.", tableLocator, row, column));
+		}
 		int rowIndex = row - 1;
 		int columnIndex = column - 1;
 		WebElement table = TableElementFinder.find(browserManagement.getCurrentWebDriver(), tableLocator);
@@ -104,9 +119,8 @@ public class TableElement extends RunOnFailureKeywordsAdapter {
 	        " | Table Column Should Contain | tableId | 2 | C |")
 	@ArgumentNames({ "tableLocator", "col", "text", "logLevel=INFO" })
 	public void tableColumnShouldContain(String tableLocator, int col, String text, String logLevel) {
-		WebElement element = TableElementFinder.findByCol(browserManagement.getCurrentWebDriver(), tableLocator, col,
-				text);
-		if (element == null) {
+		if (!snapshotsMatch(tableLocator, snapshot -> snapshot.columnContains(col, text),
+				() -> TableElementFinder.findByCol(browserManagement.getCurrentWebDriver(), tableLocator, col, text))) {
 			logging.logSource(logLevel);
 			throw new SeleniumLibraryNonFatalException(String.format(
 					"Column #%d in table identified by '%s' should have contained text '%s'.", col, tableLocator, text));
@@ -118,9 +132,8 @@ public class TableElement extends RunOnFailureKeywordsAdapter {
             "Key attributes for tables are id and name. See `Introduction` for details about locators and log levels.")
 	@ArgumentNames({ "tableLocator", "text", "logLevel=INFO" })
 	public void tableFooterShouldContain(String tableLocator, String text, String logLevel) {
-		WebElement element = TableElementFinder.findByFooter(browserManagement.getCurrentWebDriver(), tableLocator,
-				text);
-		if (element == null) {
+		if (!snapshotsMatch(tableLocator, snapshot -> snapshot.footerContains(text),
+				() -> TableElementFinder.findByFooter(browserManagement.getCurrentWebDriver(), tableLocator, text))) {
 			logging.logSource(logLevel);
 			throw new SeleniumLibraryNonFatalException(String.format(
 					"Footer in table identified by '%s' should have contained text '%s'.", tableLocator, text));
@@ -132,9 +145,8 @@ public class TableElement extends RunOnFailureKeywordsAdapter {
             "Key attributes for tables are id and name. See `Introduction` for details about locators and log levels.")
 	@ArgumentNames({ "tableLocator", "text", "logLevel=INFO" })
 	public void tableHeaderShouldContain(String tableLocator, String text, String logLevel) {
-		WebElement element = TableElementFinder.findByHeader(browserManagement.getCurrentWebDriver(), tableLocator,
-				text);
-		if (element == null) {
+		if (!snapshotsMatch(tableLocator, snapshot -> snapshot.headerContains(text),
+				() -> TableElementFinder.findByHeader(browserManagement.getCurrentWebDriver(), tableLocator, text))) {
 			logging.logSource(logLevel);
 			throw new SeleniumLibraryNonFatalException(String.format(
 					"Header in table identified by '%s' should have contained text '%s'.", tableLocator, text));
@@ -150,9 +162,8 @@ public class TableElement extends RunOnFailureKeywordsAdapter {
 	        "If the table contains cells that span multiple rows, a match only occurs for the uppermost row of those merged cells.")
 	@ArgumentNames({ "tableLocator", "row", "text", "logLevel=INFO" })
 	public void tableRowShouldContain(String tableLocator, int row, String text, String logLevel) {
-		WebElement element = TableElementFinder.findByRow(browserManagement.getCurrentWebDriver(), tableLocator, row,
-				text);
-		if (element == null) {
+		if (!snapshotsMatch(tableLocator, snapshot -> snapshot.rowContains(row, text),
+				() -> TableElementFinder.findByRow(browserManagement.getCurrentWebDriver(), tableLocator, row, text))) {
 			logging.logSource(logLevel);
 			throw new SeleniumLibraryNonFatalException(String.format(
 					"Row #%d in table identified by '%s' should have contained text '%s'.", row, tableLocator, text));
@@ -164,13 +175,90 @@ public class TableElement extends RunOnFailureKeywordsAdapter {
             "Key attributes for tables are id and name. See `Introduction` for details about locators and log levels.")
 	@ArgumentNames({ "tableLocator", "text", "logLevel=INFO" })
 	public void tableShouldContain(String tableLocator, String text, String logLevel) {
-		WebElement element = TableElementFinder.findByContent(browserManagement.getCurrentWebDriver(), tableLocator,
-				text);
-		if (element == null) {
+		if (!snapshotsMatch(tableLocator, snapshot -> snapshot.contains(text),
+				() -> TableElementFinder.findByContent(browserManagement.getCurrentWebDriver(), tableLocator, text))) {
 			logging.logSource(logLevel);
 			throw new SeleniumLibraryNonFatalException(String.format(
 					"Table identified by '%s' should have contained text '%s'.", tableLocator, text));
 		}
 	}
 
+	@RobotKeyword("Returns the content of the table identified by ``tableLocator`` as a list of rows, each a list of cell texts.\r\n" +
+	        "\r\n" +
+	        "``section`` selects the rows: ``all`` (the default) returns the header, body and footer rows in this order, ``header``, ``body`` and ``footer`` only the rows of that section. A cell spanning multiple columns is followed by empty strings for the columns it spans, so the columns of all rows line up. Cells spanning multiple rows only appear in their uppermost row.\r\n" +
+	        "\r\n" +
+	        "The whole table is read by a single script if the browser supports JavaScript, so checking many cells of the returned data is much faster than using `Get Table Cell` for each of them.\r\n" +
+	        "\r\n" +
+	        "Key attributes for tables are id and name. See `Introduction` for details about locators and log levels.\r\n" +
+	        "\r\n" +
+	        "Example:\r\n" +
+	        " | ${rows}= | Get Table Data | tableId | body | \r\n" +
+	        " | Should Be Equal | ${rows[0][1]} | 30 | ")
+	@ArgumentNames({ "tableLocator", "section=all", "logLevel=INFO" })
+	public List<List<String>> getTableData(String tableLocator, String section, String logLevel) {
+		List<String> sections = TableSnapshot.toSections(section);
+		if (sections == null) {
+			throw new SeleniumLibraryNonFatalException(
+					String.format("Section must be all, header, body or footer, not '%s'.", section));
+		}
+		List<TableSnapshot> snapshots = takeSnapshots(tableLocator);
+		TableSnapshot snapshot;
+		if (snapshots != null) {
+			snapshot = snapshots.isEmpty() ? null : snapshots.get(0);
+		} else {
+			WebElement table = TableElementFinder.find(browserManagement.getCurrentWebDriver(), tableLocator);
+			snapshot = table != null ? TableSnapshot.read(table) : null;
+		}
+		if (snapshot == null) {
+			logging.logSource(logLevel);
+			throw new SeleniumLibraryNonFatalException(
+					String.format("Table identified by '%s' could not be found.", tableLocator));
+		}
+		return snapshot.getData(sections);
+	}
+
+	// ##############################
+	// Internal Methods
+	// ##############################
+
+	/**
+	 * Returns the snapshots of the tables, or null if they cannot be taken by
+	 * script and the keyword has to look up the cells one by one. If the
+	 * script finds no table, the table is looked up with the implicit wait
+	 * before giving up, so tables rendered late are found as before.
+	 */
+	protected List<TableSnapshot> takeSnapshots(String tableLocator) {
+		WebDriver webDriver = browserManagement.getCurrentWebDriver();
+		List<TableSnapshot> snapshots = TableSnapshot.take(webDriver, tableLocator);
+		if (snapshots == null) {
+			logging.debug("Table '%s' cannot be read by script, looking up the cells one by one", tableLocator);
+		} else if (snapshots.isEmpty()) {
+			WebElement table = TableElementFinder.find(webDriver, tableLocator);
+			if (table != null) {
+				snapshots = TableSnapshot.take(webDriver, tableLocator);
+				if (snapshots == null || snapshots.isEmpty()) {
+					snapshots = Collections.singletonList(TableSnapshot.read(table));
+				}
+			}
+		}
+		return snapshots;
+	}
+
+	/**
+	 * Whether any snapshot of the tables matches the condition. Falls back to
+	 * the element lookup if no snapshots can be taken.
+	 */
+	protected boolean snapshotsMatch(String tableLocator, Predicate<TableSnapshot> condition,
+			Supplier<WebElement> fallback) {
+		List<TableSnapshot> snapshots = takeSnapshots(tableLocator);
+		if (snapshots == null) {
+			return fallback.get() != null;
+		}
+		for (TableSnapshot snapshot : snapshots) {
+			if (condition.test(snapshot)) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
@@ -2,10 +2,16 @@ package com.github.markusbernhardt.seleniumlibrary.keywords;
 
 import com.github.markusbernhardt.seleniumlibrary.RunOnFailureKeywordsAdapter;
 import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
+import com.github.markusbernhardt.seleniumlibrary.locators.ElementFinder;
+import com.github.markusbernhardt.seleniumlibrary.locators.FrameTextSearch;
+import com.github.markusbernhardt.seleniumlibrary.utils.FixedPollScheduler;
+import com.github.markusbernhardt.seleniumlibrary.utils.PollScheduler;
 import com.github.markusbernhardt.seleniumlibrary.utils.Robotframework;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
 import org.robotframework.javalib.annotation.ArgumentNames;
 import org.robotframework.javalib.annotation.Autowired;
 import org.robotframework.javalib.annotation.RobotKeyword;
@@ -32,10 +38,140 @@ public class Waiting extends RunOnFailureKeywordsAdapter {
 	@Autowired
 	protected Robot robot;
 
+	/**
+	 * Decides the sleep between two checks of a Wait ... keyword
+	 */
+	protected PollScheduler pollScheduler = new FixedPollScheduler(200, true);
+
+	/**
+	 * Whether the Wait ... keywords for text, element presence and visibility
+	 * wait in the browser instead of polling from here
+	 */
+	protected boolean observerWaits = false;
+
+	/**
+	 * Resolves with true as soon as the condition (arguments[0]: text, present
+	 * or visible) for the target (arguments[2]: a text or the arguments of the
+	 * resolve function) has the expected state (arguments[1]), and with false
+	 * after the budget (arguments[3]) in milliseconds. The condition is
+	 * checked in the animation frame after DOM mutations, and regularly for
+	 * style changes that do not mutate the DOM and for background documents
+	 * without animation frames. Texts are searched in the frames as well, see
+	 * {@link FrameTextSearch}. Resolves with null if the document has frames
+	 * the script cannot access, which have to be searched by polling.
+	 */
+	protected final static String OBSERVER_SCRIPT = ElementFinder.RESOLVER_FUNCTION + FrameTextSearch.SEARCH_FUNCTION
+			+ "var callback = arguments[arguments.length - 1];"
+			+ "var type = arguments[0], expected = arguments[1], target = arguments[2], budget = arguments[3];"
+			+ "function visible(element) {"
+			+ "  if (!element.getClientRects().length) { return false; }"
+			+ "  var style = window.getComputedStyle(element);"
+			+ "  return style.visibility !== 'hidden' && style.visibility !== 'collapse' && style.opacity !== '0';"
+			+ "}"
+			+ "var blocked = [];"
+			+ "function holds() {"
+			+ "  try {"
+			+ "    if (type === 'text') { blocked = []; return searchFrames(document, target, [], blocked); }"
+			+ "    var elements = resolve(target[0], target[1], target[2], target[3], []);"
+			+ "    return elements.length > 0 && (type === 'present' || visible(elements[0]));"
+			+ "  } catch (e) {"
+			+ "    return false;"
+			+ "  }"
+			+ "}"
+			+ "if (holds() === expected) { callback(true); return; }"
+			+ "if (blocked.length) { callback(null); return; }"
+			+ "var done = false, frame = 0;"
+			+ "var schedule = window.requestAnimationFrame || function (f) { return setTimeout(f, 16); };"
+			+ "function finish(result) {"
+			+ "  if (done) { return; }"
+			+ "  done = true;"
+			+ "  observer.disconnect();"
+			+ "  clearInterval(interval);"
+			+ "  clearTimeout(timer);"
+			+ "  callback(result);"
+			+ "}"
+			+ "function check() {"
+			+ "  frame = 0;"
+			+ "  if (holds() === expected) { finish(true); } else if (blocked.length) { finish(null); }"
+			+ "}"
+			+ "var observer = new MutationObserver(function () { if (!frame) { frame = schedule(check); } });"
+			+ "function observe(doc) {"
+			+ "  observer.observe(doc, { childList: true, subtree: true, attributes: true, characterData: true });"
+			+ "  if (type !== 'text') { return; }"
+			+ "  var frames = doc.querySelectorAll('" + FrameTextSearch.FRAME_SELECTOR + "');"
+			+ "  for (var i = 0; i < frames.length; i++) {"
+			+ "    try { if (frames[i].contentDocument) { observe(frames[i].contentDocument); } } catch (e) {}"
+			+ "  }"
+			+ "}"
+			+ "observe(document);"
+			+ "var interval = setInterval(check, type === 'visible' ? 100 : 500);"
+			+ "var timer = setTimeout(function () { finish(false); }, budget);";
+
+	// ##############################
+	// Getter / Setter
+	// ##############################
+
+	public PollScheduler getPollScheduler() {
+		return pollScheduler;
+	}
+
+	public void setPollScheduler(PollScheduler pollScheduler) {
+		this.pollScheduler = pollScheduler;
+	}
+
 	// ##############################
 	// Keywords
 	// ##############################
 
+	@RobotKeyword("Sets how the Wait ... keywords for text, element presence and element visibility wait and returns the previous mode.\r\n" + 
+	        "\r\n" + 
+	        "With mode _polling_ (the default) the condition is checked from the library as set by `Set Wait Polling`. With mode _observer_ a script waiting for DOM mutations is installed in the browser, which returns as soon as the condition seems to hold. The condition is then verified the same way as in _polling_ mode. So each wait needs only a few WebDriver commands and returns without polling delay.\r\n" + 
+	        "\r\n" + 
+	        "Longer waits are split into chunks shorter than the `Selenium Timeout`, which is also the timeout for asynchronous scripts. Locators using other strategies than id, name, identifier, xpath, css and tag as well as browsers without asynchronous script support (e.g. HtmlUnit) fall back to polling. Text waits on pages with frames of other origins fall back to polling as well.\r\n" + 
+	        "\r\n" + 
+	        "Example:\r\n" + 
+	        " | ${orig mode} = | Set Wait Mode | observer | \r\n" + 
+	        " | Wait Until Element Is Visible | id:result | \r\n" + 
+	        " | Set Wait Mode | ${orig mode} | # Reset to old value |")
+	@ArgumentNames({ "mode" })
+	public String setWaitMode(String mode) {
+		String oldMode = observerWaits ? "observer" : "polling";
+		switch (mode.toLowerCase()) {
+		case "observer":
+			observerWaits = true;
+			break;
+		case "polling":
+			observerWaits = false;
+			break;
+		default:
+			throw new SeleniumLibraryNonFatalException(String.format("Unknown wait mode: %s", mode));
+		}
+		return oldMode;
+	}
+
+	@RobotKeyword("Sets how often the Wait ... keywords check their condition and returns the previous setting.\r\n" + 
+	        "\r\n" + 
+	        "With ``strategy`` _fixed_ the condition is checked every ``min_interval``. With ``strategy`` _backoff_ the interval starts with ``min_interval`` and doubles after every unsuccessful check up to ``max_interval``. Each backoff interval is randomized by up to half of it, so parallel waits do not poll in lockstep. Intervals are given in Robot Framework's time syntax. If not given, _fixed_ polls every 200 milliseconds and _backoff_ starts with 50 milliseconds and is capped at 2 seconds.\r\n" + 
+	        "\r\n" + 
+	        "If ``immediate_first_check`` is true, the condition is checked once before sleeping the first time, so conditions that are already satisfied do not wait at all.\r\n" + 
+	        "\r\n" + 
+	        "The number of checks and the time until the condition was satisfied are logged on DEBUG level for every wait. The default is _fixed_ polling. The strategy can also be set when importing the library.\r\n" + 
+	        "\r\n" + 
+	        "The returned setting, e.g. _fixed 200ms_, contains the intervals and can be given as ``strategy`` to restore it. Intervals must be at least one millisecond.\r\n" + 
+	        "\r\n" + 
+	        "Example:\r\n" + 
+	        " | ${orig polling} = | Set Wait Polling | backoff | 50ms | 2s | \r\n" + 
+	        " | Wait Until Page Contains | Done | 30s | \r\n" + 
+	        " | Set Wait Polling | ${orig polling} | # Reset to old value |")
+	@ArgumentNames({ "strategy", "min_interval=NONE", "max_interval=NONE", "immediate_first_check=True" })
+	public String setWaitPolling(String strategy, String minInterval, String maxInterval,
+			String immediateFirstCheck) {
+		String oldPolling = pollScheduler.toString();
+		pollScheduler = PollScheduler.create(strategy, toMillis(minInterval), toMillis(maxInterval),
+				!"false".equalsIgnoreCase(immediateFirstCheck));
+		return oldPolling;
+	}
+
 	@RobotKeyword("Waits until the given JavaScript ``condition`` is true.\r\n" + 
 	        "\r\n" + 
 	        "Fails, if the timeout expires, before the condition gets true. \r\n" + 
@@ -66,9 +202,10 @@ public class Waiting extends RunOnFailureKeywordsAdapter {
 		if (StringUtils.isEmpty(message)) {
 			message = String.format("Text '%s' did not appear in <TIMEOUT>", text);
 		}
-		waitUntil(
+		waitUntilObserved(
 		        timeout,
                 message,
+                "text", true, text,
                 () -> element.isTextPresent(text));
 	}
 
@@ -82,9 +219,10 @@ public class Waiting extends RunOnFailureKeywordsAdapter {
 		if (StringUtils.isEmpty(message)) {
 			message = String.format("Text '%s' did not disappear in <TIMEOUT>", text);
 		}
-		waitUntil(
+		waitUntilObserved(
 		        timeout,
                 message,
+                "text", false, text,
                 () -> !element.isTextPresent(text));
 	}
 
@@ -108,9 +246,10 @@ public class Waiting extends RunOnFailureKeywordsAdapter {
 		if (StringUtils.isEmpty(message)) {
 			message = String.format("Element '%s' did not appear in <TIMEOUT>", locator);
 		}
-		waitUntil(
+		waitUntilObserved(
 		        timeout,
                 message,
+                "present", true, ElementFinder.getResolverArguments(locator, null),
                 () -> element.isElementPresent(locator));
 	}
 
@@ -124,9 +263,10 @@ public class Waiting extends RunOnFailureKeywordsAdapter {
 		if (StringUtils.isEmpty(message)) {
 			message = String.format("Element '%s' did not disappear in <TIMEOUT>", locator);
 		}
-		waitUntil(
+		waitUntilObserved(
 		        timeout,
                 message,
+                "present", false, ElementFinder.getResolverArguments(locator, null),
                 () -> !element.isElementPresent(locator));
 	}
 
@@ -150,9 +290,10 @@ public class Waiting extends RunOnFailureKeywordsAdapter {
 		if (StringUtils.isEmpty(message)) {
 			message = String.format("Element '%s' not visible in <TIMEOUT>", locator);
 		}
-		waitUntil(
+		waitUntilObserved(
 		        timeout,
                 message,
+                "visible", true, ElementFinder.getResolverArguments(locator, null),
                 () -> element.isVisible(locator));
 	}
 
@@ -166,9 +307,10 @@ public class Waiting extends RunOnFailureKeywordsAdapter {
 		if (StringUtils.isEmpty(message)) {
 			message = String.format("Element '%s' still visible in <TIMEOUT>", locator);
 		}
-		waitUntil(
+		waitUntilObserved(
 		        timeout,
                 message,
+                "visible", false, ElementFinder.getResolverArguments(locator, null),
                 () -> !element.isVisible(locator));
 	}
 
@@ -358,24 +500,110 @@ public class Waiting extends RunOnFailureKeywordsAdapter {
 	protected void waitUntil(String timestr, String message, WaitUntilFunction function) {
 		double timeout = timestr != null ? Robotframework.timestrToSecs(timestr) : browserManagement.getTimeout();
 		message = message.replace("<TIMEOUT>", Robotframework.secsToTimestr(timeout));
-		long maxtime = System.currentTimeMillis() + (long) (timeout * 1000);
-		Throwable exception = new Throwable();
+		PollScheduler scheduler = pollScheduler;
+		long start = System.currentTimeMillis();
+		long maxtime = start + (long) (timeout * 1000);
+		Throwable exception = null;
+		int polls = 0;
+		if (!scheduler.isImmediateFirstCheck()) {
+			sleep(Math.min(scheduler.nextDelay(0), maxtime - start + 1));
+		}
 		for (;;) {
+			polls++;
 			try {
 				if (function.isFinished()) {
-					break;
+					logging.debug("Wait satisfied after %d polls in %d ms", polls, System.currentTimeMillis() - start);
+					return;
 				}
 			} catch (Throwable t) {
-			    exception = t;
+				exception = t;
 			}
-			if (System.currentTimeMillis() > maxtime) {
-			    logging.trace(ExceptionUtils.getStackTrace(exception));
+			long now = System.currentTimeMillis();
+			if (now > maxtime) {
+				logging.debug("Wait timed out after %d polls in %d ms", polls, now - start);
+				if (exception != null && logging.isLogLevelEnabled("trace")) {
+					logging.trace(ExceptionUtils.getStackTrace(exception));
+				}
 				throw new SeleniumLibraryNonFatalException(message);
 			}
+			// Check once more right after the timeout expired
+			sleep(Math.min(scheduler.nextDelay(polls), maxtime - now + 1));
+		}
+	}
+
+	/**
+	 * Waits in the browser for the observable condition if observer waits are
+	 * enabled and possible, otherwise polls the function. The function has the
+	 * final say in both cases.
+	 */
+	protected void waitUntilObserved(String timestr, String message, String type, boolean expected, Object target,
+			WaitUntilFunction function) {
+		WebDriver webDriver = browserManagement.getCurrentWebDriver();
+		if (!observerWaits || target == null || !(webDriver instanceof JavascriptExecutor)
+				|| webDriver instanceof HtmlUnitDriver) {
+			waitUntil(timestr, message, function);
+			return;
+		}
+		double timeout = timestr != null ? Robotframework.timestrToSecs(timestr) : browserManagement.getTimeout();
+		message = message.replace("<TIMEOUT>", Robotframework.secsToTimestr(timeout));
+		long start = System.currentTimeMillis();
+		long maxtime = start + (long) (timeout * 1000);
+		// Every chunk has to end before the script timeout
+		long chunk = Math.max(100, (long) (browserManagement.getTimeout() * 1000) - 500);
+		Throwable exception = null;
+		int rounds = 0;
+		for (;;) {
+			rounds++;
+			long now = System.currentTimeMillis();
 			try {
-				Thread.sleep(200);
-			} catch (InterruptedException ignored) {
+				Object observed = ((JavascriptExecutor) webDriver).executeAsyncScript(OBSERVER_SCRIPT, type, expected,
+						target, Math.max(0, Math.min(maxtime - now, chunk)));
+				if (function.isFinished()) {
+					logging.debug("Wait satisfied after %d observer rounds in %d ms", rounds,
+							System.currentTimeMillis() - start);
+					return;
+				}
+				if (observed == null) {
+					logging.debug("Frames cannot be observed, falling back to polling");
+					waitUntil(String.valueOf(Math.max(0, maxtime - System.currentTimeMillis()) / 1000.0), message,
+							function);
+					return;
+				}
+				if (Boolean.TRUE.equals(observed)) {
+					// The observer and the verification disagree, don't spin
+					sleep(pollScheduler.nextDelay(rounds));
+				}
+			} catch (UnsupportedOperationException e) {
+				logging.debug("Asynchronous scripts are not supported, falling back to polling");
+				waitUntil(String.valueOf(Math.max(0, maxtime - now) / 1000.0), message, function);
+				return;
+			} catch (Throwable t) {
+				// e.g. the page was unloaded while waiting
+				exception = t;
+				sleep(pollScheduler.nextDelay(rounds));
 			}
+			now = System.currentTimeMillis();
+			if (now > maxtime) {
+				logging.debug("Wait timed out after %d observer rounds in %d ms", rounds, now - start);
+				if (exception != null && logging.isLogLevelEnabled("trace")) {
+					logging.trace(ExceptionUtils.getStackTrace(exception));
+				}
+				throw new SeleniumLibraryNonFatalException(message);
+			}
+		}
+	}
+
+	protected static long toMillis(String timestr) {
+		if (StringUtils.isEmpty(timestr) || "NONE".equalsIgnoreCase(timestr)) {
+			return -1;
+		}
+		return (long) (Robotframework.timestrToSecs(timestr) * 1000);
+	}
+
+	protected static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException ignored) {
 		}
 	}
 
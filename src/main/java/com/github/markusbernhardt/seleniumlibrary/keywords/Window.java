@@ -11,6 +11,7 @@ import org.robotframework.javalib.annotation.RobotKeyword;
 import org.robotframework.javalib.annotation.RobotKeywords;
 
 import com.github.markusbernhardt.seleniumlibrary.RunOnFailureKeywordsAdapter;
+import com.github.markusbernhardt.seleniumlibrary.locators.ElementHandleCache;
 import com.github.markusbernhardt.seleniumlibrary.locators.WindowManager;
 import com.github.markusbernhardt.seleniumlibrary.utils.WebDriverCache.SessionIdAliasWebDriverTuple;
 
@@ -47,11 +48,13 @@ public class Window extends RunOnFailureKeywordsAdapter {
     @ArgumentNames({ "locator=MAIN" })
     public void selectWindow(String locator) {
         WindowManager.select(browserManagement.getWebDriverCache().getCurrent(), locator);
+        ElementHandleCache.reset(browserManagement.getWebDriverCache().getCurrent());
     }
     
     @RobotKeyword("Closes the currently open pop-up window.")
     public void closeWindow() {
         browserManagement.getWebDriverCache().getCurrent().close();
+        ElementHandleCache.reset(browserManagement.getWebDriverCache().getCurrent());
     }
     
     @RobotKeyword("Returns the id attributes of all windows known to the current browser instance.")
@@ -0,0 +1,205 @@
+package com.github.markusbernhardt.seleniumlibrary.locators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Reads texts, attributes, CSS values and properties of all elements a
+ * locator matches with a single script, instead of one WebDriver command per
+ * element and value. Values are named like this:
+ * <ul>
+ * <li>text: the visible text, like WebElement.getText()</li>
+ * <li>tag: the tag name in lower case</li>
+ * <li>@name or attribute:name: the attribute, by the rules of
+ * WebElement.getAttribute(): boolean attributes are "true" or null, style is
+ * the CSS text, value, href and src are the current DOM property, other names
+ * are the attribute or, if there is none, the DOM property</li>
+ * <li>css:name: the computed CSS value, with colors as rgba() like
+ * WebElement.getCssValue()</li>
+ * <li>any other name: the DOM property</li>
+ * </ul>
+ */
+public class ElementData {
+
+	/**
+	 * Attributes that are "true" if they are present, like
+	 * WebElement.getAttribute() reads them
+	 */
+	protected final static List<String> BOOLEAN_ATTRIBUTES = Arrays.asList("allowfullscreen", "allowpaymentrequest",
+			"allowusermedia", "async", "autofocus", "autoplay", "checked", "compact", "complete", "controls", "declare",
+			"default", "defaultchecked", "defaultselected", "defer", "disabled", "ended", "formnovalidate", "hidden",
+			"indeterminate", "iscontenteditable", "ismap", "itemscope", "loop", "multiple", "muted", "nohref",
+			"nomodule", "noresize", "noshade", "novalidate", "nowrap", "open", "paused", "playsinline", "pubdate",
+			"readonly", "required", "reversed", "scoped", "seamless", "seeking", "selected", "truespeed",
+			"typemustmatch", "willvalidate");
+
+	/**
+	 * Resolves the elements with the resolve function of the
+	 * {@link ElementFinder} and returns the values named by arguments[5] for
+	 * each of them.
+	 */
+	protected final static String DATA_SCRIPT = ElementFinder.RESOLVER_FUNCTION
+			+ "var booleanAttributes = ['" + String.join("', '", BOOLEAN_ATTRIBUTES) + "'];"
+			+ "function attribute(element, name) {"
+			+ "  var lower = name.toLowerCase(), tag = element.tagName.toLowerCase();"
+			+ "  if (lower === 'style') { return element.style.cssText || element.getAttribute(name); }"
+			+ "  if ((lower === 'selected' || lower === 'checked') && (tag === 'option' || tag === 'input')) {"
+			+ "    return element.selected || element.checked ? 'true' : null;"
+			+ "  }"
+			+ "  if (booleanAttributes.indexOf(lower) !== -1) {"
+			+ "    return element.hasAttribute(name) || element[lower === 'readonly' ? 'readOnly' : lower] === true ? 'true' : null;"
+			+ "  }"
+			+ "  if ((lower === 'href' || lower === 'src') && element.hasAttribute(lower) && typeof element[lower] === 'string') {"
+			+ "    return element[lower];"
+			+ "  }"
+			+ "  if (lower === 'value' && element.value != null) { return String(element.value); }"
+			+ "  var property = element[lower === 'class' ? 'className' : name];"
+			+ "  if (!element.hasAttribute(name) && (typeof property === 'string' && property || typeof property === 'number')) {"
+			+ "    return String(property);"
+			+ "  }"
+			+ "  return element.getAttribute(name);"
+			+ "}"
+			+ "function read(element, name) {"
+			+ "  if (name === 'text') {"
+			+ "    if (element.getClientRects && !element.getClientRects().length) { return ''; }"
+			+ "    var text = element.innerText != null ? element.innerText : element.textContent;"
+			+ "    return text.replace(/\\u00a0/g, ' ').replace(/[ \\t\\f\\v]+/g, ' ').replace(/ ?\\n ?/g, '\\n').trim();"
+			+ "  }"
+			+ "  if (name === 'tag') { return element.tagName.toLowerCase(); }"
+			+ "  if (name.indexOf('css:') === 0) {"
+			+ "    var style = (element.ownerDocument.defaultView || window).getComputedStyle(element).getPropertyValue(name.slice(4));"
+			+ "    return style.replace(/^rgb\\((\\d+), (\\d+), (\\d+)\\)$/, 'rgba($1, $2, $3, 1)');"
+			+ "  }"
+			+ "  var attributeName = name.charAt(0) === '@' ? name.slice(1) : name.indexOf('attribute:') === 0 ? name.slice(10) : null;"
+			+ "  if (attributeName !== null) { return attribute(element, attributeName); }"
+			+ "  var value = element[name.indexOf('property:') === 0 ? name.slice(9) : name];"
+			+ "  return value == null || typeof value === 'boolean' || typeof value === 'number' ? value : String(value);"
+			+ "}"
+			+ "var elements = resolve(arguments[0], arguments[1], arguments[2], arguments[3], arguments[4]), result = [];"
+			+ "for (var i = 0; i < elements.length; i++) {"
+			+ "  var values = [];"
+			+ "  for (var j = 0; j < arguments[5].length; j++) { values.push(read(elements[i], arguments[5][j])); }"
+			+ "  result.push(values);"
+			+ "}"
+			+ "return result;";
+
+	/**
+	 * Returns one map of the named values per element the locator matches,
+	 * in document order. Returns null if the WebDriver cannot run the script,
+	 * so the caller falls back to {@link #read(WebElement, List)}.
+	 */
+	public static List<Map<String, Object>> query(WebDriver webDriver, String locator, List<String> names) {
+		if (!(webDriver instanceof JavascriptExecutor)) {
+			return null;
+		}
+		List<Object> arguments = ElementFinder.getResolverArguments(locator, null);
+		List<WebElement> candidates = Collections.emptyList();
+		if (arguments == null) {
+			candidates = ElementFinder.find(webDriver, locator);
+			if (candidates.isEmpty()) {
+				return new ArrayList<>();
+			}
+			arguments = new ArrayList<>(Arrays.asList("", "", "", Collections.emptyMap()));
+		} else {
+			arguments = new ArrayList<>(arguments);
+		}
+		arguments.add(candidates);
+		arguments.add(names);
+		Object result;
+		try {
+			result = ((JavascriptExecutor) webDriver).executeScript(DATA_SCRIPT, arguments.toArray());
+		} catch (UnsupportedOperationException | WebDriverException e) {
+			// e.g. HtmlUnit with JavaScript disabled or an invalid selector
+			return null;
+		}
+		if (!(result instanceof List)) {
+			return null;
+		}
+		List<Map<String, Object>> data = new ArrayList<>();
+		for (Object element : (List<?>) result) {
+			List<?> values = (List<?>) element;
+			Map<String, Object> map = new LinkedHashMap<>();
+			for (int i = 0; i < names.size(); i++) {
+				Object value = values.get(i);
+				// HtmlUnit returns concatenated strings as other CharSequences
+				map.put(names.get(i), value instanceof CharSequence ? value.toString() : value);
+			}
+			data.add(map);
+		}
+		return data;
+	}
+
+	/**
+	 * Reads the named values of the element with separate WebDriver commands,
+	 * for WebDrivers that cannot run the script
+	 */
+	public static Map<String, Object> read(WebElement element, List<String> names) {
+		Map<String, Object> map = new LinkedHashMap<>();
+		for (String name : names) {
+			Object value;
+			if (name.equals("text")) {
+				value = element.getText();
+			} else if (name.equals("tag")) {
+				value = element.getTagName().toLowerCase();
+			} else if (name.startsWith("css:")) {
+				value = element.getCssValue(name.substring(4));
+			} else if (name.startsWith("@")) {
+				value = attribute(element, name.substring(1));
+			} else if (name.startsWith("attribute:")) {
+				value = attribute(element, name.substring(10));
+			} else if (name.startsWith("property:")) {
+				value = element.getDomProperty(name.substring(9));
+			} else {
+				value = element.getDomProperty(name);
+			}
+			map.put(name, value);
+		}
+		return map;
+	}
+
+	/**
+	 * Reads the attribute by the same rules as the attribute function of the
+	 * script
+	 */
+	protected static String attribute(WebElement element, String name) {
+		String lower = name.toLowerCase();
+		String tag = element.getTagName().toLowerCase();
+		if (lower.equals("style")) {
+			return element.getDomAttribute(name);
+		}
+		if ((lower.equals("selected") || lower.equals("checked")) && (tag.equals("option") || tag.equals("input"))) {
+			return element.isSelected() ? "true" : null;
+		}
+		if (BOOLEAN_ATTRIBUTES.contains(lower)) {
+			return element.getDomAttribute(name) != null
+					|| "true".equals(element.getDomProperty(lower.equals("readonly") ? "readOnly" : lower)) ? "true"
+							: null;
+		}
+		if (lower.equals("href") || lower.equals("src")) {
+			return element.getDomAttribute(lower) != null ? element.getDomProperty(lower) : null;
+		}
+		if (lower.equals("value")) {
+			String value = element.getDomProperty("value");
+			if (value != null) {
+				return value;
+			}
+		}
+		String attribute = element.getDomAttribute(name);
+		if (attribute == null) {
+			String property = element.getDomProperty(lower.equals("class") ? "className" : name);
+			if (property != null && !property.isEmpty()) {
+				return property;
+			}
+		}
+		return attribute;
+	}
+}
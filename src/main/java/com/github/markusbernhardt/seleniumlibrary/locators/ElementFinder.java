@@ -2,12 +2,13 @@ package com.github.markusbernhardt.seleniumlibrary.locators;
 
 import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
 import com.github.markusbernhardt.seleniumlibrary.keywords.Element;
+import com.github.markusbernhardt.seleniumlibrary.keywords.Logging;
+import com.github.markusbernhardt.seleniumlibrary.utils.BoundedCache;
 import com.github.markusbernhardt.seleniumlibrary.utils.Python;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.openqa.selenium.*;
-import org.python.util.PythonInterpreter;
 
 import java.util.*;
 import java.util.Map.Entry;
@@ -16,20 +17,108 @@ public class ElementFinder {
 
 	protected final static Hashtable<String, CustomStrategy> registeredLocationStrategies = new Hashtable<>();
 
+	/**
+	 * Maximum number of distinct (locator, tag) pairs kept in the parsed
+	 * locator cache
+	 */
+	public final static int PARSED_LOCATOR_CACHE_SIZE = 1024;
+
+	/**
+	 * Parsed locators by (locator, tag). Parsing is a pure function of these
+	 * two strings and the registered custom strategies, so the cache is
+	 * cleared whenever a custom strategy is registered.
+	 */
+	protected final static BoundedCache<LocatorKey, ParsedLocator> parsedLocatorCache = new BoundedCache<>(
+			PARSED_LOCATOR_CACHE_SIZE);
+
+	/**
+	 * Maximum number of generated key attribute XPaths kept in the cache
+	 */
+	public final static int KEY_ATTRS_XPATH_CACHE_SIZE = 1024;
+
+	/**
+	 * Generated key attribute XPaths by (tag, criteria, constraints, base URL).
+	 * Only the XPath building is saved, the base URL is still read from the
+	 * browser for every lookup of tags with src or href key attributes.
+	 */
+	protected final static BoundedCache<List<Object>, String> keyAttrsXpathCache = new BoundedCache<>(
+			KEY_ATTRS_XPATH_CACHE_SIZE);
+
+	/**
+	 * Whether lookups by id, name, identifier, xpath, css and tag as well as
+	 * the tag and attribute constraint filtering are done by one injected
+	 * script instead of separate WebDriver commands
+	 */
+	protected static volatile boolean javaScriptResolver = false;
+
+	/**
+	 * Function resolve(strategy, criteria, tag, constraints, candidates). Looks
+	 * up the elements for a strategy and criteria or takes the given
+	 * candidates and keeps only those matching the tag and the attribute
+	 * constraints. Attributes are read like WebElement.getAttribute() does,
+	 * preferring the element property.
+	 */
+	public final static String RESOLVER_FUNCTION = "function resolve(strategy, criteria, tag, constraints, candidates) {"
+			+ "  candidates = candidates.slice();"
+			+ "  function quote(value) {"
+			+ "    return '\"' + value.replace(/[\"\\\\\\n\\r\\f]/g, function (c) { return '\\\\' + c.charCodeAt(0).toString(16) + ' '; }) + '\"';"
+			+ "  }"
+			+ "  function addAll(nodes) { for (var i = 0; i < nodes.length; i++) { candidates.push(nodes[i]); } }"
+			+ "  if (strategy === 'ID' || strategy === 'IDENTIFIER') { addAll(document.querySelectorAll('[id=' + quote(criteria) + ']')); }"
+			+ "  if (strategy === 'NAME' || strategy === 'IDENTIFIER') { addAll(document.querySelectorAll('[name=' + quote(criteria) + ']')); }"
+			+ "  if (strategy === 'CSS') { addAll(document.querySelectorAll(criteria)); }"
+			+ "  if (strategy === 'TAG') { addAll(document.getElementsByTagName(criteria)); }"
+			+ "  if (strategy === 'XPATH') {"
+			+ "    var snapshot = document.evaluate(criteria, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+			+ "    for (var i = 0; i < snapshot.snapshotLength; i++) {"
+			+ "      if (snapshot.snapshotItem(i).nodeType === 1) { candidates.push(snapshot.snapshotItem(i)); }"
+			+ "    }"
+			+ "  }"
+			+ "  var result = [];"
+			+ "  candidates: for (var i = 0; i < candidates.length; i++) {"
+			+ "    var element = candidates[i];"
+			+ "    if (tag && element.tagName.toLowerCase() !== tag) { continue; }"
+			+ "    for (var name in constraints) {"
+			+ "      var value = name in element && element[name] != null ? String(element[name]) : element.getAttribute(name);"
+			+ "      if (constraints[name].indexOf(value) < 0) { continue candidates; }"
+			+ "    }"
+			+ "    result.push(element);"
+			+ "  }"
+			+ "  return result;"
+			+ "}";
+
+	protected final static String RESOLVER_SCRIPT = RESOLVER_FUNCTION
+			+ "return resolve(arguments[0], arguments[1], arguments[2], arguments[3], arguments[4]);";
+
 	protected enum KeyAttrs {
 		DEFAULT("@id,@name"), A("@id,@name,@href,normalize-space(descendant-or-self::text())"),
 		IMG("@id,@name,@src,@alt"), INPUT("@id,@name,@value,@src"),
 		BUTTON("@id,@name,@value,normalize-space(descendant-or-self::text())");
 
+		protected final static Map<String, KeyAttrs> BY_TAG = new HashMap<>();
+
+		static {
+			for (KeyAttrs keyAttrs : values()) {
+				BY_TAG.put(keyAttrs.name(), keyAttrs);
+			}
+		}
+
 		protected String[] keyAttrs;
 
+		protected boolean withUrl;
+
 		KeyAttrs(String keyAttrs) {
 			this.keyAttrs = keyAttrs.split(",");
+			this.withUrl = ArrayUtils.contains(this.keyAttrs, "@src") || ArrayUtils.contains(this.keyAttrs, "@href");
 		}
 
 		public String[] getKeyAttrs() {
 			return keyAttrs;
 		}
+
+		public boolean isWithUrl() {
+			return withUrl;
+		}
 	}
 
 	protected interface Strategy {
@@ -129,6 +218,20 @@ public class ElementFinder {
 
 		};
 
+		protected final static Map<String, StrategyEnum> BY_PREFIX = new HashMap<>();
+
+		/**
+		 * Strategies the resolver script can look up on its own
+		 */
+		protected final static Set<StrategyEnum> JAVASCRIPT_RESOLVABLE = EnumSet.of(IDENTIFIER, ID, NAME, XPATH, CSS,
+				TAG);
+
+		static {
+			for (StrategyEnum strategy : values()) {
+				BY_PREFIX.put(strategy.name(), strategy);
+			}
+		}
+
 	}
 
 	protected static List<WebElement> findByJQuerySizzle(WebDriver webDriver, FindByCoordinates findByCoordinates) {
@@ -140,10 +243,18 @@ public class ElementFinder {
 	}
 
 	protected static List<WebElement> filterElements(List<WebElement> elements, FindByCoordinates findByCoordinates) {
-		if (findByCoordinates.tag == null) {
+		if (findByCoordinates.tag == null || elements.isEmpty()) {
 			return elements;
 		}
 
+		if (javaScriptResolver && elements.get(0) instanceof WrapsDriver) {
+			List<WebElement> result = resolveByJavaScript(((WrapsDriver) elements.get(0)).getWrappedDriver(), null,
+					findByCoordinates, elements);
+			if (result != null) {
+				return result;
+			}
+		}
+
 		List<WebElement> result = new ArrayList<>();
 		for (WebElement element : elements) {
 			if (elementMatches(element, findByCoordinates)) {
@@ -158,11 +269,9 @@ public class ElementFinder {
 			return false;
 		}
 
-		if (findByCoordinates.constraints != null) {
-			for (String name : findByCoordinates.constraints.keySet()) {
-				if (findByCoordinates.constraints.get(name) != null
-						&& !ArrayUtils.contains(StringUtils.split(findByCoordinates.constraints.get(name), ","),
-								element.getAttribute(name))) {
+		if (findByCoordinates.constraintValues != null) {
+			for (Entry<String, String[]> constraint : findByCoordinates.constraintValues.entrySet()) {
+				if (!ArrayUtils.contains(constraint.getValue(), element.getAttribute(constraint.getKey()))) {
 					return false;
 				}
 			}
@@ -172,23 +281,26 @@ public class ElementFinder {
 	}
 
 	protected static List<WebElement> findByKeyAttrs(WebDriver webDriver, FindByCoordinates findByCoordinates) {
-		KeyAttrs keyAttrs = KeyAttrs.DEFAULT;
-		if (findByCoordinates.tag != null) {
-			try {
-				keyAttrs = KeyAttrs.valueOf(findByCoordinates.tag.trim().toUpperCase());
-			} catch (IllegalArgumentException e) {
-				// No special keyAttrs available for this tag
-			}
-		}
+		// Tags without special keyAttrs use the default ones
+		KeyAttrs keyAttrs = findByCoordinates.tag == null ? KeyAttrs.DEFAULT
+				: KeyAttrs.BY_TAG.getOrDefault(findByCoordinates.tag.trim().toUpperCase(), KeyAttrs.DEFAULT);
+		String baseUrl = keyAttrs.isWithUrl() ? getBaseUrl(webDriver) : null;
+		String xpath = keyAttrsXpathCache.get(
+				Arrays.asList(findByCoordinates.tag, findByCoordinates.criteria, findByCoordinates.constraints, baseUrl),
+				key -> buildKeyAttrsXpath(keyAttrs, findByCoordinates, baseUrl));
+		return webDriver.findElements(By.xpath(xpath));
+	}
+
+	protected static String buildKeyAttrsXpath(KeyAttrs keyAttrs, FindByCoordinates findByCoordinates, String baseUrl) {
 		String xpathCriteria = Element.escapeXpathValue(findByCoordinates.criteria);
 		String xpathTag = findByCoordinates.tag;
 		if (findByCoordinates.tag == null) {
 			xpathTag = "*";
 		}
 		List<String> xpathConstraints = new ArrayList<>();
-		if (findByCoordinates.constraints != null) {
-			for (Entry<String, String> entry : findByCoordinates.constraints.entrySet()) {
-				for (String value : entry.getValue().split(",")) {
+		if (findByCoordinates.constraintValues != null) {
+			for (Entry<String, String[]> entry : findByCoordinates.constraintValues.entrySet()) {
+				for (String value : entry.getValue()) {
 					xpathConstraints.add(String.format("@%s='%s'", entry.getKey(), value));
 				}
 			}
@@ -197,25 +309,22 @@ public class ElementFinder {
 		for (String attr : keyAttrs.getKeyAttrs()) {
 			xpathSearchers.add(String.format("%s=%s", attr, xpathCriteria));
 		}
-		xpathSearchers.addAll(getAttrsWithUrl(webDriver, keyAttrs, findByCoordinates.criteria));
-		String xpath = String.format("//%s[%s(%s)]",
+		xpathSearchers.addAll(getAttrsWithUrl(keyAttrs, findByCoordinates.criteria, baseUrl));
+		return String.format("//%s[%s(%s)]",
 				xpathTag,
 				(xpathConstraints.size() > 0 ? String.format("(%s) and ",StringUtils.join(xpathConstraints, " or ")) : ""),
 				StringUtils.join(xpathSearchers, " or "));
-		return webDriver.findElements(By.xpath(xpath));
 	}
 
-	protected static List<String> getAttrsWithUrl(WebDriver webDriver, KeyAttrs keyAttrs, String criteria) {
+	protected static List<String> getAttrsWithUrl(KeyAttrs keyAttrs, String criteria, String baseUrl) {
 		List<String> attrs = new ArrayList<>();
-		String url = null;
 		String xpathUrl = null;
 		String[] srcHref = { "@src", "@href" };
 		for (String attr : srcHref) {
 			for (String keyAttr : keyAttrs.getKeyAttrs()) {
 				if (attr.equals(keyAttr)) {
-					if (url == null || xpathUrl == null) {
-						url = getBaseUrl(webDriver) + "/" + criteria;
-						xpathUrl = Element.escapeXpathValue(url);
+					if (xpathUrl == null) {
+						xpathUrl = Element.escapeXpathValue(baseUrl + "/" + criteria);
 					}
 					attrs.add(String.format("%s=%s", attr, xpathUrl));
 				}
@@ -224,6 +333,11 @@ public class ElementFinder {
 		return attrs;
 	}
 
+	/**
+	 * Returns the base URL of the current page. It is fetched for every lookup
+	 * that needs it, because the page can navigate on its own, e.g. by
+	 * redirects, timers or event handlers.
+	 */
 	protected static String getBaseUrl(WebDriver webDriver) {
 		String url = webDriver.getCurrentUrl();
 		int lastIndex = url.lastIndexOf('/');
@@ -233,8 +347,84 @@ public class ElementFinder {
 		return url;
 	}
 
+	/**
+	 * Runs the resolver script. Returns null if the WebDriver cannot execute
+	 * it, so the caller falls back to the separate WebDriver commands.
+	 */
+	protected static List<WebElement> resolveByJavaScript(WebDriver webDriver, StrategyEnum strategy,
+			FindByCoordinates findByCoordinates, List<WebElement> candidates) {
+		if (!(webDriver instanceof JavascriptExecutor)) {
+			return null;
+		}
+		List<Object> arguments = toResolverArguments(strategy, findByCoordinates);
+		arguments.add(candidates != null ? candidates : Collections.emptyList());
+		try {
+			return toList(((JavascriptExecutor) webDriver).executeScript(RESOLVER_SCRIPT, arguments.toArray()));
+		} catch (UnsupportedOperationException | WebDriverException e) {
+			// e.g. HtmlUnit with JavaScript disabled or an invalid selector
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the strategy, criteria, tag and constraints arguments of the
+	 * resolve function for the given locator, or null if the function cannot
+	 * look up the locator on its own. Unlike {@link #find(WebDriver, String)}
+	 * key attribute locators without tag are treated as identifier locators,
+	 * which finds the same elements but possibly in a different order.
+	 */
+	public static List<Object> getResolverArguments(String locator, String tag) {
+		ParsedLocator parsedLocator = parsedLocatorCache.get(new LocatorKey(locator, tag), ElementFinder::parse);
+		StrategyEnum strategy = parsedLocator.javaScriptStrategy;
+		if (strategy == null && parsedLocator.strategy == StrategyEnum.DEFAULT && tag == null) {
+			strategy = StrategyEnum.IDENTIFIER;
+		}
+		if (strategy == null) {
+			return null;
+		}
+		return toResolverArguments(strategy, parsedLocator.findByCoordinates);
+	}
+
+	protected static List<Object> toResolverArguments(StrategyEnum strategy, FindByCoordinates findByCoordinates) {
+		Map<String, List<String>> constraints = new HashMap<>();
+		if (findByCoordinates.constraintValues != null) {
+			for (Entry<String, String[]> entry : findByCoordinates.constraintValues.entrySet()) {
+				constraints.put(entry.getKey(), Arrays.asList(entry.getValue()));
+			}
+		}
+		List<Object> arguments = new ArrayList<>();
+		arguments.add(strategy != null ? strategy.name() : "");
+		arguments.add(findByCoordinates.criteria);
+		arguments.add(findByCoordinates.tag != null ? findByCoordinates.tag : "");
+		arguments.add(constraints);
+		return arguments;
+	}
+
+	public static boolean isJavaScriptResolver() {
+		return javaScriptResolver;
+	}
+
+	public static void setJavaScriptResolver(boolean javaScriptResolver) {
+		ElementFinder.javaScriptResolver = javaScriptResolver;
+	}
+
 	public static void addLocationStrategy(String strategyName, String functionDefinition, String delimiter) {
 		registeredLocationStrategies.put(strategyName.toUpperCase(), new CustomStrategy(functionDefinition, delimiter));
+		// Locators with this prefix might have been parsed with the default
+		// strategy before
+		parsedLocatorCache.clear();
+	}
+
+	public static long getLocatorCacheHits() {
+		return parsedLocatorCache.getHits();
+	}
+
+	public static long getLocatorCacheMisses() {
+		return parsedLocatorCache.getMisses();
+	}
+
+	public static void clearLocatorCache() {
+		parsedLocatorCache.clear();
 	}
 
 	public static List<WebElement> find(WebDriver webDriver, String locator) {
@@ -249,21 +439,26 @@ public class ElementFinder {
 			throw new SeleniumLibraryNonFatalException("ElementFinder.find: locator is null.");
 		}
 
-		FindByCoordinates findByCoordinates = new FindByCoordinates();
-		Strategy strategy = parseLocator(findByCoordinates, locator);
-		parseTag(findByCoordinates, tag);
-		return strategy.findBy(webDriver, findByCoordinates);
+		ParsedLocator parsedLocator = parsedLocatorCache.get(new LocatorKey(locator, tag), ElementFinder::parse);
+		if (javaScriptResolver && parsedLocator.javaScriptStrategy != null) {
+			List<WebElement> elements = resolveByJavaScript(webDriver, parsedLocator.javaScriptStrategy,
+					parsedLocator.findByCoordinates, null);
+			if (elements != null) {
+				return elements;
+			}
+		}
+		return parsedLocator.strategy.findBy(webDriver, parsedLocator.findByCoordinates);
 	}
 
-	protected static ThreadLocal<PythonInterpreter> loggingPythonInterpreter = ThreadLocal.withInitial(() -> {
-		PythonInterpreter pythonInterpreter = new PythonInterpreter();
-		pythonInterpreter.exec("from robot.libraries.BuiltIn import BuiltIn; from robot.api import logger;");
-		return pythonInterpreter;
-	});
+	protected static ParsedLocator parse(LocatorKey locatorKey) {
+		FindByCoordinates findByCoordinates = new FindByCoordinates();
+		Strategy strategy = parseLocator(findByCoordinates, locatorKey.locator);
+		parseTag(findByCoordinates, locatorKey.tag);
+		return new ParsedLocator(strategy, findByCoordinates);
+	}
 
 	protected static void warn(String msg) {
-		loggingPythonInterpreter.get()
-				.exec(String.format("logger.warn('%s');", msg.replace("'", "\\'").replace("\n", "\\n")));
+		Logging.warning(msg);
 	}
 
 	protected static Strategy parseLocator(FindByCoordinates findByCoordinates, String locator) {
@@ -273,8 +468,7 @@ public class ElementFinder {
 			String[] locatorParts = locator.split("[=:]", 2);
 			if (locatorParts.length == 2) {
 				if (locator.charAt(locatorParts[0].length()) == '=') {
-					System.out.println(
-							"*WARN* '=' is deprecated as locator strategy separator. ':' should be used instead");
+					warn("'=' is deprecated as locator strategy separator. ':' should be used instead");
 				}
 				prefix = locatorParts[0].trim().toUpperCase();
 				criteria = locatorParts[1].trim();
@@ -283,9 +477,10 @@ public class ElementFinder {
 
 		Strategy strategy = StrategyEnum.DEFAULT;
 		if (prefix != null) {
-			try {
-				strategy = StrategyEnum.valueOf(prefix);
-			} catch (IllegalArgumentException e) {
+			Strategy standardStrategy = StrategyEnum.BY_PREFIX.get(prefix);
+			if (standardStrategy != null) {
+				strategy = standardStrategy;
+			} else {
 				// No standard locator type. Look for custom strategy
 				CustomStrategy customStrategy = registeredLocationStrategies.get(prefix);
 				if (customStrategy != null) {
@@ -336,7 +531,12 @@ public class ElementFinder {
 			break;
 		}
 		findByCoordinates.tag = tag;
-		findByCoordinates.constraints = constraints;
+		findByCoordinates.constraints = Collections.unmodifiableMap(constraints);
+		Map<String, String[]> constraintValues = new TreeMap<>();
+		for (Entry<String, String> entry : constraints.entrySet()) {
+			constraintValues.put(entry.getKey(), StringUtils.split(entry.getValue(), ","));
+		}
+		findByCoordinates.constraintValues = Collections.unmodifiableMap(constraintValues);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -357,6 +557,67 @@ public class ElementFinder {
 		String criteria;
 		String tag;
 		Map<String, String> constraints;
+		Map<String, String[]> constraintValues;
+	}
+
+	/**
+	 * Cache key of a parsed locator. The tag may be null.
+	 */
+	protected static final class LocatorKey {
+
+		final String locator;
+		final String tag;
+
+		LocatorKey(String locator, String tag) {
+			this.locator = locator;
+			this.tag = tag;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof LocatorKey)) {
+				return false;
+			}
+			LocatorKey other = (LocatorKey) o;
+			return locator.equals(other.locator) && Objects.equals(tag, other.tag);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * locator.hashCode() + (tag != null ? tag.hashCode() : 0);
+		}
+	}
+
+	/**
+	 * A locator with its strategy already resolved and its tag constraints
+	 * already built. Instances are shared between threads and must not be
+	 * modified after {@link #parse(LocatorKey)} returned them.
+	 */
+	protected static final class ParsedLocator {
+
+		final Strategy strategy;
+		final FindByCoordinates findByCoordinates;
+
+		/**
+		 * Strategy to pass to the resolver script, null if the script cannot
+		 * look up the locator on its own
+		 */
+		final StrategyEnum javaScriptStrategy;
+
+		ParsedLocator(Strategy strategy, FindByCoordinates findByCoordinates) {
+			this.strategy = strategy;
+			this.findByCoordinates = findByCoordinates;
+			if (strategy == StrategyEnum.DEFAULT && findByCoordinates.criteria.startsWith("//")) {
+				javaScriptStrategy = StrategyEnum.XPATH;
+			} else if (StrategyEnum.JAVASCRIPT_RESOLVABLE.contains(strategy)) {
+				javaScriptStrategy = (StrategyEnum) strategy;
+			} else {
+				javaScriptStrategy = null;
+			}
+		}
 	}
 
 	protected static class CustomStrategy implements Strategy {
@@ -0,0 +1,146 @@
+package com.github.markusbernhardt.seleniumlibrary.locators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import com.github.markusbernhardt.seleniumlibrary.utils.BoundedCache;
+
+/**
+ * Reuses the element a locator found for later keywords on the same locator,
+ * so they skip the lookup. Elements are cached per WebDriver by the frames
+ * selected since the top document, the locator and the tag. Selecting
+ * another window or navigating forgets the elements of the WebDriver. As
+ * long as the current frame is unknown, e.g. when the cache was enabled
+ * after a frame was selected, nothing is cached.
+ * <p>
+ * Cached elements are checked with a cheap command before they are returned.
+ * If one has been removed from the page in the meantime, it is forgotten and
+ * looked up again, so keywords never act on a stale element and are never
+ * run twice.
+ */
+public class ElementHandleCache {
+
+	/**
+	 * Maximum number of elements cached per WebDriver
+	 */
+	public static final int MAX_CACHED_ELEMENTS = 256;
+
+	protected static volatile boolean enabled;
+
+	protected final static Map<WebDriver, Handles> handles = Collections.synchronizedMap(new WeakHashMap<>());
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		ElementHandleCache.enabled = enabled;
+		if (!enabled) {
+			handles.clear();
+		}
+	}
+
+	/**
+	 * Returns the cached element for the locator and tag in the current frame,
+	 * if it is still in the page, or looks it up. The lookup returns null if
+	 * there is no element, which is not cached.
+	 */
+	public static WebElement find(WebDriver webDriver, String locator, String tag, Supplier<WebElement> lookup) {
+		if (!enabled) {
+			return lookup.get();
+		}
+		Handles driverHandles = handles.computeIfAbsent(webDriver, key -> new Handles(null));
+		if (driverHandles.framePath == null) {
+			return lookup.get();
+		}
+		List<Object> key = Arrays.asList(driverHandles.framePath, locator, tag);
+		boolean[] looked = new boolean[1];
+		WebElement element = driverHandles.elements.get(key, k -> {
+			looked[0] = true;
+			return lookup.get();
+		});
+		if (looked[0] || element == null || !isStale(element)) {
+			return element;
+		}
+		driverHandles.elements.remove(key);
+		return driverHandles.elements.get(key, k -> lookup.get());
+	}
+
+	/**
+	 * Records that the frame of the locator was selected within the current
+	 * frame
+	 */
+	public static void selectFrame(WebDriver webDriver, String locator) {
+		Handles driverHandles = handles.get(webDriver);
+		if (driverHandles != null && driverHandles.framePath != null) {
+			List<String> framePath = new ArrayList<>(driverHandles.framePath);
+			framePath.add(locator);
+			driverHandles.framePath = Collections.unmodifiableList(framePath);
+		}
+	}
+
+	/**
+	 * Records that the top document was selected
+	 */
+	public static void selectTopFrame(WebDriver webDriver) {
+		if (enabled && webDriver != null) {
+			handles.computeIfAbsent(webDriver, key -> new Handles(null)).framePath = Collections.emptyList();
+		}
+	}
+
+	/**
+	 * Forgets the cached elements of the WebDriver when the top document of
+	 * another window was selected or a new page was loaded
+	 */
+	public static void reset(WebDriver webDriver) {
+		if (enabled && webDriver != null) {
+			handles.put(webDriver, new Handles(Collections.emptyList()));
+		}
+	}
+
+	/**
+	 * Forgets the cached elements of the WebDriver, but not the current frame
+	 */
+	public static void invalidate(WebDriver webDriver) {
+		Handles driverHandles = webDriver != null ? handles.get(webDriver) : null;
+		if (driverHandles != null) {
+			driverHandles.elements.clear();
+		}
+	}
+
+	/**
+	 * Returns whether the element has been removed from the page
+	 */
+	protected static boolean isStale(WebElement element) {
+		try {
+			element.isEnabled();
+			return false;
+		} catch (StaleElementReferenceException e) {
+			return true;
+		}
+	}
+
+	protected static class Handles {
+
+		/**
+		 * Locators of the frames selected since the top document, or null if
+		 * unknown
+		 */
+		protected volatile List<String> framePath;
+
+		protected final BoundedCache<List<Object>, WebElement> elements = new BoundedCache<>(MAX_CACHED_ELEMENTS);
+
+		protected Handles(List<String> framePath) {
+			this.framePath = framePath;
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package com.github.markusbernhardt.seleniumlibrary.locators;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Searches text in a document and all its frames with one script. The script
+ * descends into every frame whose document it can access. Only frames of
+ * other origins are switched to, and searched with the same script from
+ * there.
+ */
+public class FrameTextSearch {
+
+	/**
+	 * Selects the frames of a document, in document order
+	 */
+	public final static String FRAME_SELECTOR = "frame, iframe";
+
+	/**
+	 * Function searchFrames(doc, text, path, blocked). Returns true if the
+	 * document or one of its accessible frames contains the text like
+	 * //*[contains(., text)] matches. Adds the paths of frames it cannot
+	 * access to blocked. A path lists the indexes of the frames to switch to
+	 * among the frames of their document.
+	 */
+	public final static String SEARCH_FUNCTION = "function searchFrames(doc, text, path, blocked) {"
+			+ "  if (doc.documentElement && doc.documentElement.textContent.indexOf(text) !== -1) { return true; }"
+			+ "  var frames = doc.querySelectorAll('" + FRAME_SELECTOR + "');"
+			+ "  for (var i = 0; i < frames.length; i++) {"
+			+ "    var child = null;"
+			+ "    try { child = frames[i].contentDocument; } catch (e) {}"
+			+ "    if (!child) { blocked.push(path.concat([i])); continue; }"
+			+ "    if (searchFrames(child, text, path.concat([i]), blocked)) { return true; }"
+			+ "  }"
+			+ "  return false;"
+			+ "}";
+
+	/**
+	 * Searches arguments[0] in the current document and its frames. Returns
+	 * true if found, else the paths of the frames it could not access.
+	 */
+	public final static String SEARCH_SCRIPT = SEARCH_FUNCTION
+			+ "var blocked = [];"
+			+ "return searchFrames(document, arguments[0], [], blocked) ? true : blocked;";
+
+	/**
+	 * Returns whether the top document of the current window or one of its
+	 * frames contains the text, or null if the WebDriver cannot run the
+	 * script. Searches the {@link PageTextSnapshot} if enabled. Leaves the
+	 * WebDriver switched to the top document.
+	 */
+	public static Boolean pageContains(WebDriver webDriver, String text) {
+		if (!(webDriver instanceof JavascriptExecutor)) {
+			return null;
+		}
+		webDriver.switchTo().defaultContent();
+		try {
+			PageTextSnapshot snapshot = PageTextSnapshot.isEnabled() ? PageTextSnapshot.take(webDriver) : null;
+			if (snapshot != null) {
+				return snapshot.contains(text)
+						|| searchFrames(webDriver, text, new ArrayList<>(), snapshot.getBlockedFrames());
+			}
+			return search(webDriver, text, new ArrayList<>());
+		} catch (UnsupportedOperationException | WebDriverException e) {
+			// e.g. HtmlUnit with JavaScript disabled
+			webDriver.switchTo().defaultContent();
+			return null;
+		}
+	}
+
+	protected static boolean search(WebDriver webDriver, String text, List<Integer> path) {
+		Object result = ((JavascriptExecutor) webDriver).executeScript(SEARCH_SCRIPT, text);
+		if (Boolean.TRUE.equals(result)) {
+			return true;
+		}
+		return searchFrames(webDriver, text, path, (List<?>) result);
+	}
+
+	/**
+	 * Searches the frames of the index paths, relative to the frame of the
+	 * path, by switching to them
+	 */
+	protected static boolean searchFrames(WebDriver webDriver, String text, List<Integer> path,
+			List<?> blockedFrames) {
+		if (!path.isEmpty() && !blockedFrames.isEmpty()) {
+			webDriver.switchTo().defaultContent();
+		}
+		for (Object blocked : blockedFrames) {
+			List<Integer> framePath = new ArrayList<>(path);
+			for (Object index : (List<?>) blocked) {
+				framePath.add(((Number) index).intValue());
+			}
+			boolean found = switchTo(webDriver, framePath) && search(webDriver, text, framePath);
+			webDriver.switchTo().defaultContent();
+			if (found) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Switches from the top document to the frame of the path. Returns false
+	 * if a frame is gone in the meantime.
+	 */
+	protected static boolean switchTo(WebDriver webDriver, List<Integer> path) {
+		for (int index : path) {
+			List<WebElement> frames = webDriver.findElements(By.cssSelector(FRAME_SELECTOR));
+			if (index >= frames.size()) {
+				return false;
+			}
+			webDriver.switchTo().frame(frames.get(index));
+		}
+		return true;
+	}
+}
@@ -0,0 +1,213 @@
+package com.github.markusbernhardt.seleniumlibrary.locators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.WeakHashMap;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * The text of the current document and of all frames the document can
+ * access, read by a single script. While page text snapshots are enabled,
+ * the text assertions search the snapshot instead of running an XPath over
+ * the whole DOM for every assertion. A snapshot is reused until the
+ * MutationObserver of one of its documents reports a change or the current
+ * document is replaced.
+ * <p>
+ * The snapshot is searched with {@link String#contains}. An index like a
+ * suffix automaton or n-grams would answer each search in time of the text
+ * searched for, but it costs a multiple of the page text in memory and has
+ * to be rebuilt on every change of the page. Assertions are rarely repeated
+ * often enough between two changes to make up for that, while a linear scan
+ * of even a few megabytes of text takes about a millisecond.
+ */
+public class PageTextSnapshot {
+
+	/**
+	 * Maximum number of documents, i.e. windows, frames and pages, snapshots
+	 * are cached for per WebDriver
+	 */
+	public static final int MAX_CACHED_DOCUMENTS = 4;
+
+	/**
+	 * Returns [token, signature, texts, blocked] for the current document and
+	 * all frames it can access. Texts are the text content of the documents,
+	 * the current document first, which //*[contains(., text)] matches.
+	 * Blocked are the index paths of the frames that cannot be accessed, see
+	 * {@link FrameTextSearch}. The signature joins the states of all
+	 * documents. If the known signatures (arguments[0]) have the signature for
+	 * the token of the current document, only the token is returned. Without
+	 * a state for every document, the token is null.
+	 */
+	protected final static String SNAPSHOT_SCRIPT = TableSnapshot.DOCUMENT_STATE_FUNCTION
+			+ "var documents = [], blocked = [], states = [];"
+			+ "function collect(doc, path) {"
+			+ "  documents.push(doc);"
+			+ "  var state = documentState(doc);"
+			+ "  states.push(state ? state.token + ':' + state.version : null);"
+			+ "  var frames = doc.querySelectorAll('" + FrameTextSearch.FRAME_SELECTOR + "');"
+			+ "  for (var i = 0; i < frames.length; i++) {"
+			+ "    var child = null;"
+			+ "    try { child = frames[i].contentDocument; } catch (e) {}"
+			+ "    if (child) { collect(child, path.concat([i])); } else { blocked.push(path.concat([i])); }"
+			+ "  }"
+			+ "}"
+			+ "collect(document, []);"
+			+ "var token = states.indexOf(null) === -1 ? states[0].split(':')[0] : null;"
+			+ "var signature = states.join(' ');"
+			+ "if (token !== null && arguments[0][token] === signature) { return token; }"
+			+ "var texts = [];"
+			+ "for (var i = 0; i < documents.length; i++) {"
+			+ "  texts.push(documents[i].documentElement ? documents[i].documentElement.textContent : '');"
+			+ "}"
+			+ "return [token, signature, texts, blocked];";
+
+	protected static volatile boolean enabled;
+
+	/**
+	 * Snapshots by WebDriver and document token
+	 */
+	protected final static Map<WebDriver, Map<String, PageTextSnapshot>> snapshotCache = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	protected final String signature;
+
+	protected final List<String> texts;
+
+	protected final List<List<Integer>> blockedFrames;
+
+	public PageTextSnapshot(String signature, List<String> texts, List<List<Integer>> blockedFrames) {
+		this.signature = signature;
+		this.texts = texts;
+		this.blockedFrames = blockedFrames;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		PageTextSnapshot.enabled = enabled;
+		if (!enabled) {
+			snapshotCache.clear();
+		}
+	}
+
+	/**
+	 * Takes a snapshot of the current document and its frames, or returns the
+	 * cached one if none of the documents changed. Returns null if the
+	 * WebDriver cannot run the script.
+	 */
+	public static PageTextSnapshot take(WebDriver webDriver) {
+		if (!(webDriver instanceof JavascriptExecutor)) {
+			return null;
+		}
+		Map<String, PageTextSnapshot> documents = snapshotCache.computeIfAbsent(webDriver,
+				key -> newDocumentMap());
+		Map<String, String> knownSignatures = new LinkedHashMap<>();
+		synchronized (documents) {
+			for (Entry<String, PageTextSnapshot> entry : documents.entrySet()) {
+				knownSignatures.put(entry.getKey(), entry.getValue().signature);
+			}
+		}
+		Object result;
+		try {
+			result = ((JavascriptExecutor) webDriver).executeScript(SNAPSHOT_SCRIPT, knownSignatures);
+		} catch (UnsupportedOperationException | WebDriverException e) {
+			// e.g. HtmlUnit with JavaScript disabled
+			return null;
+		}
+		// HtmlUnit returns concatenated strings as other CharSequences
+		if (result instanceof CharSequence) {
+			synchronized (documents) {
+				PageTextSnapshot cached = documents.get(result.toString());
+				if (cached != null) {
+					return cached;
+				}
+			}
+			// Evicted in the meantime
+			invalidate(webDriver);
+			return take(webDriver);
+		}
+		if (!(result instanceof List) || ((List<?>) result).size() != 4) {
+			return null;
+		}
+		List<?> list = (List<?>) result;
+		List<String> texts = new ArrayList<>();
+		for (Object text : (List<?>) list.get(2)) {
+			texts.add(String.valueOf(text));
+		}
+		List<List<Integer>> blockedFrames = new ArrayList<>();
+		for (Object blocked : (List<?>) list.get(3)) {
+			List<Integer> path = new ArrayList<>();
+			for (Object index : (List<?>) blocked) {
+				path.add(((Number) index).intValue());
+			}
+			blockedFrames.add(path);
+		}
+		PageTextSnapshot snapshot = new PageTextSnapshot(String.valueOf(list.get(1)),
+				Collections.unmodifiableList(texts), Collections.unmodifiableList(blockedFrames));
+		if (list.get(0) != null) {
+			synchronized (documents) {
+				documents.put(list.get(0).toString(), snapshot);
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Forgets the cached snapshots of the WebDriver
+	 */
+	public static void invalidate(WebDriver webDriver) {
+		if (webDriver != null) {
+			snapshotCache.remove(webDriver);
+		}
+	}
+
+	protected static Map<String, PageTextSnapshot> newDocumentMap() {
+		return new LinkedHashMap<String, PageTextSnapshot>(MAX_CACHED_DOCUMENTS * 2, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PageTextSnapshot> eldest) {
+				return size() > MAX_CACHED_DOCUMENTS;
+			}
+		};
+	}
+
+	/**
+	 * Whether the current document contains the text, not looking into its
+	 * frames
+	 */
+	public boolean documentContains(String text) {
+		return texts.get(0).contains(text);
+	}
+
+	/**
+	 * Whether the current document or one of the frames it can access
+	 * contains the text
+	 */
+	public boolean contains(String text) {
+		for (String documentText : texts) {
+			if (documentText.contains(text)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Index paths of the frames the snapshot does not contain, because they
+	 * cannot be accessed from the current document
+	 */
+	public List<List<Integer>> getBlockedFrames() {
+		return blockedFrames;
+	}
+}
@@ -0,0 +1,477 @@
+package com.github.markusbernhardt.seleniumlibrary.locators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.WeakHashMap;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+import com.github.markusbernhardt.seleniumlibrary.utils.BoundedCache;
+
+/**
+ * The text of all cells of a table, read by a single script. The table
+ * keywords evaluate their conditions on the snapshot instead of looking up
+ * and reading every cell with separate WebDriver commands. Rows keep the
+ * section (thead, tbody or tfoot) they belong to and cells know whether they
+ * are header cells and how many columns they span.
+ */
+public class TableSnapshot {
+
+	/**
+	 * Function snapshot(table). Returns the caption and the rows of the table
+	 * as [section, group, texts, headers, spans], or null if the element is no
+	 * table. The group numbers the row containers, so rows can be counted per
+	 * container like tr:nth-child() does. Texts are read like
+	 * WebElement.getText() does for visible cells.
+	 */
+	public final static String SNAPSHOT_FUNCTION = "function snapshot(table) {"
+			+ "  if (!table || table.tagName.toLowerCase() !== 'table') { return null; }"
+			+ "  function text(element) {"
+			+ "    if (element.getClientRects && !element.getClientRects().length) { return ''; }"
+			+ "    var value = element.innerText != null ? element.innerText : element.textContent;"
+			+ "    return value.replace(/\\u00a0/g, ' ').replace(/[ \\t\\f\\v]+/g, ' ').replace(/ ?\\n ?/g, '\\n').trim();"
+			+ "  }"
+			+ "  var rows = [], parent = null, group = -1;"
+			+ "  for (var i = 0; i < table.rows.length; i++) {"
+			+ "    var row = table.rows[i];"
+			+ "    if (row.parentNode !== parent) { parent = row.parentNode; group++; }"
+			+ "    var section = parent.tagName.toLowerCase();"
+			+ "    var texts = [], headers = [], spans = [];"
+			+ "    for (var j = 0; j < row.cells.length; j++) {"
+			+ "      var cell = row.cells[j];"
+			+ "      texts.push(text(cell));"
+			+ "      headers.push(cell.tagName.toLowerCase() === 'th');"
+			+ "      spans.push(Math.max(1, cell.colSpan || 1));"
+			+ "    }"
+			+ "    rows.push([section === 'table' ? 'tbody' : section, group, texts, headers, spans]);"
+			+ "  }"
+			+ "  return [table.caption ? text(table.caption) : '', rows];"
+			+ "}";
+
+	/**
+	 * Maximum number of documents, i.e. windows, frames and pages, the
+	 * snapshots of a table locator are cached for
+	 */
+	public static final int MAX_CACHED_DOCUMENTS = 4;
+
+	/**
+	 * Maximum number of table locators cached per WebDriver
+	 */
+	public static final int MAX_CACHED_LOCATORS = 32;
+
+	/**
+	 * Function documentState(doc). Returns {token, version} of the document,
+	 * which identify the document and its state. The first call in a document
+	 * installs a MutationObserver that counts up the version on any change.
+	 * Browsers whose MutationObserver does not record mutations, e.g.
+	 * HtmlUnit, get null.
+	 */
+	public final static String DOCUMENT_STATE_FUNCTION = "function documentState(doc) {"
+			+ "  var state = doc.__seleniumLibraryState, view = doc.defaultView || window;"
+			+ "  if (!state && typeof view.MutationObserver !== 'undefined') {"
+			+ "    var probe = doc.createElement('div'), test = new view.MutationObserver(function () {});"
+			+ "    test.observe(probe, { attributes: true });"
+			+ "    probe.setAttribute('title', '');"
+			+ "    if (test.takeRecords().length) {"
+			+ "      state = doc.__seleniumLibraryState = { token: Math.random().toString(36).slice(2) + Date.now().toString(36), version: 0 };"
+			+ "      state.observer = new view.MutationObserver(function () { state.version++; });"
+			+ "      state.observer.observe(doc, { childList: true, subtree: true, attributes: true, characterData: true });"
+			+ "    }"
+			+ "    test.disconnect();"
+			+ "  }"
+			+ "  if (state && state.observer.takeRecords().length) { state.version++; }"
+			+ "  return state || null;"
+			+ "}";
+
+	/**
+	 * Resolves the tables with the resolve function of the
+	 * {@link ElementFinder} and returns [token, version, snapshots] with the
+	 * state of the document. If the document has the version given for its
+	 * token in the known versions (arguments[5]), only the token is returned.
+	 * Documents without state get no token, so their snapshots are not
+	 * cached.
+	 */
+	protected final static String SNAPSHOT_SCRIPT = ElementFinder.RESOLVER_FUNCTION + SNAPSHOT_FUNCTION
+			+ DOCUMENT_STATE_FUNCTION
+			+ "var state = documentState(document);"
+			+ "if (state && arguments[5][state.token] === state.version) { return state.token; }"
+			+ "var tables = resolve(arguments[0], arguments[1], arguments[2], arguments[3], arguments[4]);"
+			+ "var result = [];"
+			+ "for (var i = 0; i < tables.length; i++) { result.push(snapshot(tables[i])); }"
+			+ "return [state ? state.token : null, state ? state.version : 0, result];";
+
+	/**
+	 * Snapshots by WebDriver, table locator and document token
+	 */
+	protected final static Map<WebDriver, BoundedCache<String, Map<String, CachedSnapshots>>> snapshotCache = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	protected final static List<String> ALL_SECTIONS = Collections
+			.unmodifiableList(Arrays.asList("thead", "tbody", "tfoot"));
+
+	protected final String caption;
+
+	protected final List<Row> rows;
+
+	public TableSnapshot(String caption, List<Row> rows) {
+		this.caption = caption;
+		this.rows = rows;
+	}
+
+	/**
+	 * Takes snapshots of all tables the table locator matches, in document
+	 * order. Returns null if the WebDriver cannot run the script or the
+	 * locator matches elements that are no tables, so the caller falls back
+	 * to the separate WebDriver commands. Snapshots are cached per document
+	 * of the current window and frame. As long as the document is not
+	 * changed, the script only confirms the cached snapshots.
+	 */
+	public static List<TableSnapshot> take(WebDriver webDriver, String tableLocator) {
+		if (!(webDriver instanceof JavascriptExecutor)) {
+			return null;
+		}
+		String locator = TableElementFinder.parseTableLocator(tableLocator, "default").get(0);
+		List<Object> arguments = ElementFinder.getResolverArguments(locator, null);
+		List<WebElement> candidates = Collections.emptyList();
+		if (arguments == null) {
+			candidates = ElementFinder.find(webDriver, locator);
+			if (candidates.isEmpty()) {
+				return Collections.emptyList();
+			}
+			arguments = new ArrayList<>(Arrays.asList("", "", "", Collections.emptyMap()));
+		} else {
+			arguments = new ArrayList<>(arguments);
+		}
+		arguments.add(candidates);
+		Map<String, CachedSnapshots> documents = snapshotCache
+				.computeIfAbsent(webDriver, key -> new BoundedCache<>(MAX_CACHED_LOCATORS))
+				.get(tableLocator, key -> newDocumentMap());
+		Map<String, Long> knownVersions = new HashMap<>();
+		synchronized (documents) {
+			for (Entry<String, CachedSnapshots> entry : documents.entrySet()) {
+				knownVersions.put(entry.getKey(), entry.getValue().version);
+			}
+		}
+		arguments.add(knownVersions);
+		Object result;
+		try {
+			result = ((JavascriptExecutor) webDriver).executeScript(SNAPSHOT_SCRIPT, arguments.toArray());
+		} catch (UnsupportedOperationException | WebDriverException e) {
+			// e.g. HtmlUnit with JavaScript disabled or an invalid selector
+			return null;
+		}
+		// HtmlUnit returns concatenated strings as other CharSequences
+		if (result instanceof CharSequence) {
+			synchronized (documents) {
+				CachedSnapshots cached = documents.get(result.toString());
+				if (cached != null) {
+					return cached.snapshots;
+				}
+			}
+			// Evicted in the meantime
+			invalidate(webDriver);
+			return take(webDriver, tableLocator);
+		}
+		if (!(result instanceof List) || ((List<?>) result).size() != 3) {
+			return null;
+		}
+		List<?> list = (List<?>) result;
+		List<TableSnapshot> snapshots = new ArrayList<>();
+		for (Object table : (List<?>) list.get(2)) {
+			if (!(table instanceof List)) {
+				return null;
+			}
+			snapshots.add(fromScriptResult((List<?>) table));
+		}
+		snapshots = Collections.unmodifiableList(snapshots);
+		if (list.get(0) != null) {
+			synchronized (documents) {
+				documents.put(list.get(0).toString(),
+						new CachedSnapshots(((Number) list.get(1)).longValue(), snapshots));
+			}
+		}
+		return snapshots;
+	}
+
+	/**
+	 * Forgets the cached snapshots of the WebDriver
+	 */
+	public static void invalidate(WebDriver webDriver) {
+		if (webDriver != null) {
+			snapshotCache.remove(webDriver);
+		}
+	}
+
+	protected static Map<String, CachedSnapshots> newDocumentMap() {
+		return new LinkedHashMap<String, CachedSnapshots>(MAX_CACHED_DOCUMENTS * 2, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedSnapshots> eldest) {
+				return size() > MAX_CACHED_DOCUMENTS;
+			}
+		};
+	}
+
+	/**
+	 * Reads the table with separate WebDriver commands, for WebDrivers that
+	 * cannot run the snapshot script
+	 */
+	public static TableSnapshot read(WebElement table) {
+		List<Row> rows = new ArrayList<>();
+		int group = 0;
+		for (String section : ALL_SECTIONS) {
+			for (WebElement container : table.findElements(By.xpath("./" + section))) {
+				for (WebElement row : container.findElements(By.xpath("./tr"))) {
+					List<String> texts = new ArrayList<>();
+					List<Boolean> headers = new ArrayList<>();
+					List<Integer> spans = new ArrayList<>();
+					for (WebElement cell : row.findElements(By.xpath("./th|./td"))) {
+						texts.add(cell.getText());
+						headers.add(cell.getTagName().equalsIgnoreCase("th"));
+						spans.add(toSpan(cell.getDomAttribute("colspan")));
+					}
+					rows.add(new Row(section, group, texts, headers, spans));
+				}
+				group++;
+			}
+		}
+		return new TableSnapshot("", rows);
+	}
+
+	protected static TableSnapshot fromScriptResult(List<?> table) {
+		List<Row> rows = new ArrayList<>();
+		for (Object o : (List<?>) table.get(1)) {
+			List<?> row = (List<?>) o;
+			List<String> texts = new ArrayList<>();
+			for (Object text : (List<?>) row.get(2)) {
+				texts.add(String.valueOf(text));
+			}
+			List<Boolean> headers = new ArrayList<>();
+			for (Object header : (List<?>) row.get(3)) {
+				headers.add(Boolean.TRUE.equals(header));
+			}
+			List<Integer> spans = new ArrayList<>();
+			for (Object span : (List<?>) row.get(4)) {
+				spans.add(((Number) span).intValue());
+			}
+			rows.add(new Row(String.valueOf(row.get(0)), ((Number) row.get(1)).intValue(), texts, headers, spans));
+		}
+		return new TableSnapshot(String.valueOf(table.get(0)), rows);
+	}
+
+	/**
+	 * Returns the table sections for all, header, body or footer, or null for
+	 * any other name
+	 */
+	public static List<String> toSections(String name) {
+		switch (name.toLowerCase()) {
+		case "all":
+			return ALL_SECTIONS;
+		case "header":
+			return Collections.singletonList("thead");
+		case "body":
+			return Collections.singletonList("tbody");
+		case "footer":
+			return Collections.singletonList("tfoot");
+		default:
+			return null;
+		}
+	}
+
+	protected static int toSpan(String colspan) {
+		try {
+			return colspan != null ? Math.max(1, Integer.parseInt(colspan.trim())) : 1;
+		} catch (NumberFormatException e) {
+			return 1;
+		}
+	}
+
+	public String getCaption() {
+		return caption;
+	}
+
+	public List<Row> getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the text of the cell or null if there is no such cell. Rows are
+	 * counted over the header, body and footer rows. Within a row the header
+	 * cells are counted before the data cells.
+	 */
+	public String getCell(int row, int column) {
+		if (row < 1 || row > rows.size() || column < 1) {
+			return null;
+		}
+		Row cells = rows.get(row - 1);
+		int index = 0;
+		for (boolean header : new boolean[] { true, false }) {
+			for (int i = 0; i < cells.texts.size(); i++) {
+				if (cells.headers.get(i) == header && ++index == column) {
+					return cells.texts.get(i);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Whether the caption, a cell or a row contains the text. Rows are
+	 * matched by their cells joined with spaces, so texts spanning adjacent
+	 * cells are found like in the text of the table element.
+	 */
+	public boolean contains(String text) {
+		if (caption.contains(text)) {
+			return true;
+		}
+		for (Row row : rows) {
+			if (row.getText().contains(text)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Whether a header cell in any section contains the text
+	 */
+	public boolean headerContains(String text) {
+		for (Row row : rows) {
+			for (int i = 0; i < row.texts.size(); i++) {
+				if (row.headers.get(i) && row.texts.get(i).contains(text)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Whether a cell of the footer contains the text
+	 */
+	public boolean footerContains(String text) {
+		for (Row row : rows) {
+			if (row.section.equals("tfoot")) {
+				for (String cell : row.texts) {
+					if (cell.contains(text)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Whether the row contains the text. Like tr:nth-child() the rows are
+	 * counted per header, body and footer, so the row of each of them is
+	 * searched.
+	 */
+	public boolean rowContains(int row, String text) {
+		int group = -1;
+		int index = 0;
+		for (Row candidate : rows) {
+			if (candidate.group != group) {
+				group = candidate.group;
+				index = 0;
+			}
+			if (++index == row && candidate.getText().contains(text)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Whether the cell at the column of any row contains the text. Cells
+	 * spanning multiple columns count as a single column.
+	 */
+	public boolean columnContains(int column, String text) {
+		for (Row row : rows) {
+			if (column >= 1 && column <= row.texts.size() && row.texts.get(column - 1).contains(text)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the texts of the rows of the given sections. A cell spanning
+	 * multiple columns is followed by empty strings for the columns it spans,
+	 * so the columns of all rows line up.
+	 */
+	public List<List<String>> getData(List<String> sections) {
+		List<List<String>> data = new ArrayList<>();
+		for (Row row : rows) {
+			if (!sections.contains(row.section)) {
+				continue;
+			}
+			List<String> texts = new ArrayList<>();
+			for (int i = 0; i < row.texts.size(); i++) {
+				texts.add(row.texts.get(i));
+				for (int span = 1; span < row.spans.get(i); span++) {
+					texts.add("");
+				}
+			}
+			data.add(texts);
+		}
+		return data;
+	}
+
+	protected static class CachedSnapshots {
+
+		protected final long version;
+
+		protected final List<TableSnapshot> snapshots;
+
+		protected CachedSnapshots(long version, List<TableSnapshot> snapshots) {
+			this.version = version;
+			this.snapshots = snapshots;
+		}
+	}
+
+	public static class Row {
+
+		protected final String section;
+
+		protected final int group;
+
+		protected final List<String> texts;
+
+		protected final List<Boolean> headers;
+
+		protected final List<Integer> spans;
+
+		public Row(String section, int group, List<String> texts, List<Boolean> headers, List<Integer> spans) {
+			this.section = section;
+			this.group = group;
+			this.texts = texts;
+			this.headers = headers;
+			this.spans = spans;
+		}
+
+		public String getSection() {
+			return section;
+		}
+
+		public List<String> getTexts() {
+			return texts;
+		}
+
+		protected String getText() {
+			return String.join(" ", texts);
+		}
+	}
+}
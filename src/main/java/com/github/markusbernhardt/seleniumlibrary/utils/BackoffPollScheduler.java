@@ -0,0 +1,46 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Doubles the interval after every unsuccessful check, starting with the
+ * minimum interval and capped by the maximum interval. Each delay is
+ * randomized between half and the full interval, but never below the
+ * minimum interval, so parallel waits do not hit the remote end in lockstep.
+ */
+public class BackoffPollScheduler implements PollScheduler {
+
+	protected final long minInterval;
+
+	protected final long maxInterval;
+
+	protected final boolean immediateFirstCheck;
+
+	public BackoffPollScheduler(long minInterval, long maxInterval, boolean immediateFirstCheck) {
+		this.minInterval = Math.max(1, minInterval);
+		this.maxInterval = Math.max(this.minInterval, maxInterval);
+		this.immediateFirstCheck = immediateFirstCheck;
+	}
+
+	@Override
+	public long nextDelay(int polls) {
+		long interval = minInterval;
+		// Stop doubling at the maximum, so large intervals cannot overflow
+		for (int i = 1; i < polls && interval < maxInterval; i++) {
+			interval = interval > maxInterval / 2 ? maxInterval : interval * 2;
+		}
+		long jittered = interval / 2 + ThreadLocalRandom.current().nextLong(interval / 2 + 1);
+		return Math.max(minInterval, jittered);
+	}
+
+	@Override
+	public boolean isImmediateFirstCheck() {
+		return immediateFirstCheck;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("backoff %dms - %dms", minInterval, maxInterval)
+				+ (immediateFirstCheck ? "" : " " + DELAYED_FIRST_CHECK);
+	}
+}
@@ -0,0 +1,84 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Small thread-safe LRU cache with hit/miss counters. Used to memoize values
+ * that are expensive to compute but depend only on their key, e.g. parsed
+ * locators.
+ */
+public class BoundedCache<K, V> {
+
+	protected final int maxSize;
+
+	protected final AtomicLong hits = new AtomicLong();
+
+	protected final AtomicLong misses = new AtomicLong();
+
+	protected final Map<K, V> entries;
+
+	public BoundedCache(int maxSize) {
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size() > BoundedCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached value for the key. If there is none, the value is
+	 * computed outside of the lock and stored. Null values are not cached.
+	 */
+	public V get(K key, Function<? super K, ? extends V> loader) {
+		V value;
+		synchronized (entries) {
+			value = entries.get(key);
+		}
+		if (value != null) {
+			hits.incrementAndGet();
+			return value;
+		}
+		misses.incrementAndGet();
+		value = loader.apply(key);
+		if (value != null) {
+			synchronized (entries) {
+				entries.put(key, value);
+			}
+		}
+		return value;
+	}
+
+	public void remove(K key) {
+		synchronized (entries) {
+			entries.remove(key);
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+}
@@ -0,0 +1,231 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.http.WebSocket;
+
+/**
+ * Counts the WebDriver commands of instrumented sessions, the bytes sent and
+ * received for them and their latency. Commands are attributed to the
+ * keyword running on the issuing thread and to their session. Bytes are only
+ * known for sessions whose HTTP client comes from {@link #countBytes}.
+ */
+public class CommandMetrics implements CommandMetricsMXBean {
+
+	public static final String OBJECT_NAME = "com.github.markusbernhardt.seleniumlibrary:type=CommandMetrics";
+
+	/**
+	 * Keyword of commands issued outside of keywords, e.g. by background
+	 * threads
+	 */
+	public static final String NO_KEYWORD = "<none>";
+
+	protected static final ThreadLocal<String> currentKeyword = new ThreadLocal<>();
+
+	/**
+	 * Bytes sent and received by the HTTP exchanges of the current command
+	 */
+	protected static final ThreadLocal<long[]> currentBytes = ThreadLocal.withInitial(() -> new long[2]);
+
+	protected final Counter total = new Counter();
+
+	protected final Map<String, Counter> byKeyword = new ConcurrentHashMap<>();
+
+	protected final Map<String, Counter> bySession = new ConcurrentHashMap<>();
+
+	/**
+	 * Sets the keyword the commands of the current thread are attributed to,
+	 * null when no keyword is running.
+	 */
+	public static void setCurrentKeyword(String keyword) {
+		if (keyword == null) {
+			currentKeyword.remove();
+		} else {
+			currentKeyword.set(keyword);
+		}
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server. Does nothing if
+	 * other metrics are registered already.
+	 */
+	public void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+		} catch (InstanceAlreadyExistsException e) {
+			// Another library instance was first
+		} catch (JMException | SecurityException e) {
+			// JMX is not essential
+		}
+	}
+
+	/**
+	 * Returns a factory for HTTP clients that count the bytes of each request
+	 * and response towards the current command.
+	 */
+	public static HttpClient.Factory countBytes(HttpClient.Factory factory) {
+		return config -> new ByteCountingHttpClient(factory.createClient(config));
+	}
+
+	/**
+	 * Starts measuring a command on the current thread
+	 */
+	public void startCommand() {
+		long[] bytes = currentBytes.get();
+		bytes[0] = 0;
+		bytes[1] = 0;
+	}
+
+	/**
+	 * Records a command of the current thread
+	 */
+	public void endCommand(String sessionId, long nanos) {
+		long[] bytes = currentBytes.get();
+		String keyword = currentKeyword.get();
+		total.add(nanos, bytes[0], bytes[1]);
+		byKeyword.computeIfAbsent(keyword != null ? keyword : NO_KEYWORD, k -> new Counter()).add(nanos, bytes[0],
+				bytes[1]);
+		if (sessionId != null) {
+			bySession.computeIfAbsent(sessionId, k -> new Counter()).add(nanos, bytes[0], bytes[1]);
+		}
+	}
+
+	/**
+	 * Returns the statistics by keyword or by session, sorted by name
+	 */
+	public Map<String, Map<String, Object>> getStatistics(boolean bySession) {
+		Map<String, Map<String, Object>> statistics = new LinkedHashMap<>();
+		for (Entry<String, Counter> entry : new TreeMap<>(bySession ? this.bySession : byKeyword).entrySet()) {
+			statistics.put(entry.getKey(), entry.getValue().toMap());
+		}
+		return statistics;
+	}
+
+	@Override
+	public long getCommands() {
+		return total.commands.sum();
+	}
+
+	@Override
+	public long getBytesSent() {
+		return total.bytesSent.sum();
+	}
+
+	@Override
+	public long getBytesReceived() {
+		return total.bytesReceived.sum();
+	}
+
+	@Override
+	public double getTotalMillis() {
+		return total.nanos.sum() / 1e6;
+	}
+
+	@Override
+	public Map<String, Long> getCommandsByKeyword() {
+		return commands(byKeyword);
+	}
+
+	@Override
+	public Map<String, Long> getCommandsBySession() {
+		return commands(bySession);
+	}
+
+	@Override
+	public void reset() {
+		total.reset();
+		byKeyword.clear();
+		bySession.clear();
+	}
+
+	protected static Map<String, Long> commands(Map<String, Counter> counters) {
+		Map<String, Long> commands = new TreeMap<>();
+		for (Entry<String, Counter> entry : counters.entrySet()) {
+			commands.put(entry.getKey(), entry.getValue().commands.sum());
+		}
+		return commands;
+	}
+
+	protected static int length(Contents.Supplier content) {
+		return content != null ? Math.max(0, content.length()) : 0;
+	}
+
+	protected static class Counter {
+
+		protected final LongAdder commands = new LongAdder();
+
+		protected final LongAdder bytesSent = new LongAdder();
+
+		protected final LongAdder bytesReceived = new LongAdder();
+
+		protected final LongAdder nanos = new LongAdder();
+
+		protected void add(long nanos, long bytesSent, long bytesReceived) {
+			this.commands.increment();
+			this.bytesSent.add(bytesSent);
+			this.bytesReceived.add(bytesReceived);
+			this.nanos.add(nanos);
+		}
+
+		protected void reset() {
+			commands.reset();
+			bytesSent.reset();
+			bytesReceived.reset();
+			nanos.reset();
+		}
+
+		protected Map<String, Object> toMap() {
+			long count = commands.sum();
+			double millis = nanos.sum() / 1e6;
+			Map<String, Object> map = new LinkedHashMap<>();
+			map.put("commands", count);
+			map.put("bytes_sent", bytesSent.sum());
+			map.put("bytes_received", bytesReceived.sum());
+			map.put("total_ms", millis);
+			map.put("mean_ms", count > 0 ? millis / count : 0.0);
+			return map;
+		}
+	}
+
+	protected static class ByteCountingHttpClient implements HttpClient {
+
+		protected final HttpClient delegate;
+
+		protected ByteCountingHttpClient(HttpClient delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public HttpResponse execute(HttpRequest request) {
+			long[] bytes = currentBytes.get();
+			bytes[0] += length(request.getContent());
+			HttpResponse response = delegate.execute(request);
+			bytes[1] += length(response.getContent());
+			return response;
+		}
+
+		@Override
+		public WebSocket openSocket(HttpRequest request, WebSocket.Listener listener) {
+			return delegate.openSocket(request, listener);
+		}
+
+		@Override
+		public void close() {
+			delegate.close();
+		}
+	}
+}
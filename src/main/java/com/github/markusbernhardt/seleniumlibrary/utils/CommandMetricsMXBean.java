@@ -0,0 +1,24 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import java.util.Map;
+
+/**
+ * JMX view of the WebDriver commands issued by the library. Registered as
+ * {@value CommandMetrics#OBJECT_NAME}.
+ */
+public interface CommandMetricsMXBean {
+
+	long getCommands();
+
+	long getBytesSent();
+
+	long getBytesReceived();
+
+	double getTotalMillis();
+
+	Map<String, Long> getCommandsByKeyword();
+
+	Map<String, Long> getCommandsBySession();
+
+	void reset();
+}
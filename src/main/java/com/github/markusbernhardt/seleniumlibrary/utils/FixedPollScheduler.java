@@ -0,0 +1,31 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+/**
+ * Polls in a fixed interval.
+ */
+public class FixedPollScheduler implements PollScheduler {
+
+	protected final long interval;
+
+	protected final boolean immediateFirstCheck;
+
+	public FixedPollScheduler(long interval, boolean immediateFirstCheck) {
+		this.interval = interval;
+		this.immediateFirstCheck = immediateFirstCheck;
+	}
+
+	@Override
+	public long nextDelay(int polls) {
+		return interval;
+	}
+
+	@Override
+	public boolean isImmediateFirstCheck() {
+		return immediateFirstCheck;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("fixed %dms", interval) + (immediateFirstCheck ? "" : " " + DELAYED_FIRST_CHECK);
+	}
+}
@@ -0,0 +1,48 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import java.io.IOException;
+
+import org.openqa.selenium.logging.LocalLogs;
+import org.openqa.selenium.logging.NeedsLocalLogs;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.Response;
+
+/**
+ * Records every command of a session in the {@link CommandMetrics} and
+ * passes it on to the actual executor.
+ */
+public class InstrumentedCommandExecutor implements CommandExecutor, NeedsLocalLogs {
+
+	protected final CommandExecutor delegate;
+
+	protected final CommandMetrics metrics;
+
+	public InstrumentedCommandExecutor(CommandExecutor delegate, CommandMetrics metrics) {
+		this.delegate = delegate;
+		this.metrics = metrics;
+	}
+
+	public CommandExecutor getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public Response execute(Command command) throws IOException {
+		metrics.startCommand();
+		long start = System.nanoTime();
+		try {
+			return delegate.execute(command);
+		} finally {
+			metrics.endCommand(command.getSessionId() != null ? command.getSessionId().toString() : null,
+					System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public void setLocalLogs(LocalLogs logs) {
+		if (delegate instanceof NeedsLocalLogs) {
+			((NeedsLocalLogs) delegate).setLocalLogs(logs);
+		}
+	}
+}
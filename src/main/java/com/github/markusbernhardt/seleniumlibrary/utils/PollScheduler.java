@@ -0,0 +1,70 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
+
+/**
+ * Decides how long the Wait ... keywords sleep between two checks of their
+ * condition.
+ */
+public interface PollScheduler {
+
+	/**
+	 * Marks settings whose first check is not done immediately
+	 */
+	String DELAYED_FIRST_CHECK = "delayed";
+
+	/**
+	 * Returns the delay in milliseconds before the next check, after the given
+	 * number of checks did not satisfy the condition. Called with 0 before the
+	 * first check, if it is not done immediately.
+	 */
+	long nextDelay(int polls);
+
+	/**
+	 * Whether the condition is checked once before sleeping the first time.
+	 */
+	boolean isImmediateFirstCheck();
+
+	/**
+	 * Creates the scheduler for the given strategy. The strategy is either a
+	 * name or a setting as returned by toString(), e.g. "backoff 50ms -
+	 * 2000ms", whose intervals are used unless others are given. Negative
+	 * intervals select the defaults of the strategy.
+	 */
+	static PollScheduler create(String strategy, long minInterval, long maxInterval, boolean immediateFirstCheck) {
+		String[] tokens = strategy.trim().split("\\s+");
+		List<Long> intervals = new ArrayList<>();
+		for (int i = 1; i < tokens.length; i++) {
+			if (tokens[i].equals("-")) {
+				continue;
+			} else if (tokens[i].equalsIgnoreCase(DELAYED_FIRST_CHECK)) {
+				immediateFirstCheck = false;
+			} else if (tokens[i].matches("\\d+ms")) {
+				intervals.add(Long.parseLong(tokens[i].substring(0, tokens[i].length() - 2)));
+			} else {
+				throw new SeleniumLibraryNonFatalException(String.format("Unknown wait polling strategy: %s", strategy));
+			}
+		}
+		if (minInterval < 0 && intervals.size() > 0) {
+			minInterval = intervals.get(0);
+		}
+		if (maxInterval < 0 && intervals.size() > 1) {
+			maxInterval = intervals.get(1);
+		}
+		if (minInterval == 0 || maxInterval == 0) {
+			throw new SeleniumLibraryNonFatalException("Wait polling intervals must be at least 1 millisecond");
+		}
+		switch (tokens[0].toLowerCase()) {
+		case "fixed":
+			return new FixedPollScheduler(minInterval < 0 ? 200 : minInterval, immediateFirstCheck);
+		case "backoff":
+			return new BackoffPollScheduler(minInterval < 0 ? 50 : minInterval, maxInterval < 0 ? 2000 : maxInterval,
+					immediateFirstCheck);
+		default:
+			throw new SeleniumLibraryNonFatalException(String.format("Unknown wait polling strategy: %s", strategy));
+		}
+	}
+}
@@ -4,10 +4,28 @@ import java.io.File;
 import java.io.UnsupportedEncodingException;
 import java.util.Locale;
 
+import org.python.core.Py;
+import org.python.core.PyObject;
+
 import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
 
 public abstract class Robotframework {
 
+	/**
+	 * Returns a BuiltIn library instance of the running Robot Framework or
+	 * null outside of a Robot Framework execution. The already loaded Python
+	 * modules are used, no Python interpreter is created.
+	 */
+	public static PyObject getBuiltIn() {
+		PyObject context = Py.getSystemState().modules.__finditem__("robot.running.context");
+		PyObject builtInModule = Py.getSystemState().modules.__finditem__("robot.libraries.BuiltIn");
+		if (context == null || builtInModule == null
+				|| context.__getattr__("EXECUTION_CONTEXTS").__getattr__("current") == Py.None) {
+			return null;
+		}
+		return builtInModule.__getattr__("BuiltIn").__call__();
+	}
+
 	public static String getLinkPath(File target, File base) {
 		String path = getPathname(target, base);
 		return encodeURLComponent(path);
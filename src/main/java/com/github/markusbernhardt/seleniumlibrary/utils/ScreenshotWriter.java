@@ -0,0 +1,298 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Writes captured screenshots to disk. In asynchronous mode the files are
+ * written by a background thread. At most {@link #MAX_PENDING} screenshots
+ * wait for it, further screenshots are written by the capturing thread.
+ * Screenshots wider than the maximum width are downscaled before they are
+ * written. Consecutive identical screenshots can be skipped, in which case
+ * the file of the previous one is linked instead, as long as that one was
+ * written successfully. Pending screenshots are written on {@link #flush()}
+ * and on JVM shutdown, unless the writer was closed.
+ */
+public class ScreenshotWriter {
+
+	/**
+	 * Maximum number of screenshots waiting for the background thread
+	 */
+	public static final int MAX_PENDING = 8;
+
+	protected volatile boolean asynchronous;
+
+	/**
+	 * Maximum width in pixels, 0 for no limit
+	 */
+	protected volatile int maxWidth;
+
+	protected volatile boolean skipDuplicates;
+
+	protected ThreadPoolExecutor executor;
+
+	protected final Deque<Future<?>> pending = new ConcurrentLinkedDeque<>();
+
+	protected final Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+	protected byte[] lastHash;
+
+	protected File lastFile;
+
+	/**
+	 * Writes the last file in the background, null if it was written already
+	 */
+	protected Future<Boolean> lastWrite;
+
+	protected final AtomicLong written = new AtomicLong();
+
+	protected final AtomicLong skipped = new AtomicLong();
+
+	protected final Thread shutdownHook = new Thread(this::flush, "ScreenshotWriter shutdown");
+
+	public ScreenshotWriter() {
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	public void configure(boolean asynchronous, int maxWidth, boolean skipDuplicates) {
+		if (!asynchronous) {
+			flush();
+		}
+		this.asynchronous = asynchronous;
+		this.maxWidth = maxWidth;
+		this.skipDuplicates = skipDuplicates;
+		synchronized (this) {
+			lastHash = null;
+			lastFile = null;
+			lastWrite = null;
+		}
+	}
+
+	public boolean isAsynchronous() {
+		return asynchronous;
+	}
+
+	public int getMaxWidth() {
+		return maxWidth;
+	}
+
+	public boolean isSkipDuplicates() {
+		return skipDuplicates;
+	}
+
+	/**
+	 * Writes the screenshot to the file and returns the file to link. That is
+	 * the file of the previous screenshot, if duplicates may be skipped and
+	 * both screenshots are identical.
+	 */
+	public File write(File file, byte[] png, boolean mayBeSkipped) {
+		byte[] hash = null;
+		if (skipDuplicates && mayBeSkipped) {
+			hash = sha256(png);
+			File previousFile;
+			Future<Boolean> previousWrite;
+			synchronized (this) {
+				previousFile = Arrays.equals(hash, lastHash) ? lastFile : null;
+				previousWrite = lastWrite;
+			}
+			if (previousFile != null && (previousWrite == null || isWritten(previousWrite))) {
+				skipped.incrementAndGet();
+				return previousFile;
+			}
+		}
+		Future<Boolean> future = null;
+		if (asynchronous) {
+			pending.removeIf(Future::isDone);
+			future = getExecutor().submit(() -> store(file, png));
+			pending.add(future);
+		} else if (!store(file, png)) {
+			hash = null;
+		}
+		if (hash != null) {
+			synchronized (this) {
+				lastHash = hash;
+				lastFile = file;
+				lastWrite = future;
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Closes the writer: Pending screenshots are written and the JVM shutdown
+	 * hook is removed, so the writer can be garbage collected.
+	 */
+	public void close() {
+		flush();
+		synchronized (this) {
+			if (executor != null) {
+				executor.shutdown();
+				executor = null;
+			}
+		}
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			// JVM is already shutting down
+		}
+	}
+
+	/**
+	 * Waits until all pending screenshots are written.
+	 */
+	public void flush() {
+		Future<?> future;
+		while ((future = pending.pollFirst()) != null) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				failures.add(e.getCause().toString());
+			}
+		}
+	}
+
+	/**
+	 * Returns and forgets the failures of screenshots written in the background
+	 */
+	public List<String> pollFailures() {
+		List<String> polled = new ArrayList<>();
+		String failure;
+		while ((failure = failures.poll()) != null) {
+			polled.add(failure);
+		}
+		return polled;
+	}
+
+	public long getWritten() {
+		return written.get();
+	}
+
+	public long getSkipped() {
+		return skipped.get();
+	}
+
+	protected synchronized ThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(MAX_PENDING),
+					runnable -> {
+						Thread thread = new Thread(runnable, "ScreenshotWriter");
+						thread.setDaemon(true);
+						return thread;
+					}, new ThreadPoolExecutor.CallerRunsPolicy());
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+
+	/**
+	 * Writes the file. Returns false and records the failure if that fails.
+	 */
+	protected boolean store(File file, byte[] png) {
+		try {
+			byte[] bytes = maxWidth > 0 ? downscale(png, maxWidth) : png;
+			File parent = file.getAbsoluteFile().getParentFile();
+			if (parent != null) {
+				parent.mkdirs();
+			}
+			Files.write(file.toPath(), bytes);
+			written.incrementAndGet();
+			return true;
+		} catch (IOException e) {
+			failures.add(String.format("Can't write screenshot '%s': %s", file.getAbsolutePath(), e));
+			return false;
+		}
+	}
+
+	/**
+	 * Waits for the background write and returns whether it succeeded
+	 */
+	protected static boolean isWritten(Future<Boolean> write) {
+		try {
+			return Boolean.TRUE.equals(write.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Scales the image down to the given width, keeping the aspect ratio.
+	 * Images that are narrow enough or can't be decoded are returned as is.
+	 */
+	protected static byte[] downscale(byte[] png, int maxWidth) throws IOException {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+		if (image == null || image.getWidth() <= maxWidth) {
+			return png;
+		}
+		int height = Math.max(1, (int) Math.round((double) image.getHeight() * maxWidth / image.getWidth()));
+		BufferedImage scaled = new BufferedImage(maxWidth, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = scaled.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.drawImage(image, 0, 0, maxWidth, height, null);
+		} finally {
+			graphics.dispose();
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(png.length / 2);
+		ImageIO.write(scaled, "png", out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Cuts the given rectangle out of the image. The rectangle is clipped to
+	 * the image and must overlap it.
+	 */
+	public static byte[] crop(byte[] png, int x, int y, int width, int height) throws IOException {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+		if (image == null) {
+			throw new IOException("Screenshot is no image");
+		}
+		int left = Math.max(0, x);
+		int top = Math.max(0, y);
+		int right = Math.min(image.getWidth(), x + width);
+		int bottom = Math.min(image.getHeight(), y + height);
+		if (width <= 0 || height <= 0 || right <= left || bottom <= top) {
+			throw new IllegalArgumentException(String.format("Region is outside of the %dx%d screenshot",
+					image.getWidth(), image.getHeight()));
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image.getSubimage(left, top, right - left, bottom - top), "png", out);
+		return out.toByteArray();
+	}
+
+	protected static byte[] sha256(byte[] bytes) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(bytes);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
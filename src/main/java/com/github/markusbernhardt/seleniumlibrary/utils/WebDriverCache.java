@@ -1,141 +1,286 @@
 package com.github.markusbernhardt.seleniumlibrary.utils;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Stack;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.openqa.selenium.WebDriver;
 
 import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryFatalException;
 
+/**
+ * Cache of all open browsers. Lookups by session id or alias are lock-free.
+ * The current browser is tracked per session context. A thread shares the
+ * session context of the thread that created it, so keywords run in Robot
+ * Framework's timeout threads see the same current browser. Threads of
+ * in-process parallel runners get their own current browser when they start
+ * running suites or tests, see {@link #ownSessionContext()}.
+ */
 public class WebDriverCache {
 
 	/**
-	 * The currently active web driver instance
+	 * The session context of the current thread
 	 */
-	SessionIdAliasWebDriverTuple currentSessionIdAliasWebDriverTuple;
+	protected final InheritableThreadLocal<SessionContext> sessionContext = new InheritableThreadLocal<SessionContext>() {
+
+		@Override
+		protected SessionContext initialValue() {
+			return new SessionContext();
+		}
+	};
 
 	/**
-	 * The maximum assigned session id
+	 * Guards the session id assignment
 	 */
-	int maxAssignedSessionId = 0;
+	protected final Object sessionIdLock = new Object();
 
 	/**
-	 * Stack of currently open session ids to reuse
+	 * The maximum assigned session id
 	 */
-	Stack<String> openSessionIds = new Stack<>();
+	int maxAssignedSessionId = 0;
 
 	/**
 	 * Stack of already closed session ids to reuse
 	 */
-	Stack<String> closedSessionIds = new Stack<>();
+	Deque<String> closedSessionIds = new ArrayDeque<>();
 
 	/**
 	 * Map session ids to webdrivers
 	 */
-	Map<String, SessionIdAliasWebDriverTuple> tupleBySessionId = new TreeMap<>();
+	Map<String, SessionIdAliasWebDriverTuple> tupleBySessionId = new ConcurrentSkipListMap<>();
 
 	/**
 	 * Map aliases to webdrivers
 	 */
-	Map<String, SessionIdAliasWebDriverTuple> tupleByAlias = new TreeMap<>();
+	Map<String, SessionIdAliasWebDriverTuple> tupleByAlias = new ConcurrentHashMap<>();
+
+	/**
+	 * Pool the closed webdrivers are handed back to, null if they are quit
+	 */
+	protected volatile WebDriverPool pool;
+
+	public WebDriverPool getPool() {
+		return pool;
+	}
+
+	public void setPool(WebDriverPool pool) {
+		this.pool = pool;
+	}
 
 	public String register(WebDriver webDriver, String alias) {
 		// create the new tuple
-		currentSessionIdAliasWebDriverTuple = new SessionIdAliasWebDriverTuple();
-		currentSessionIdAliasWebDriverTuple.alias = alias;
-		currentSessionIdAliasWebDriverTuple.webDriver = webDriver;
-		if (closedSessionIds.size() == 0) {
-			// no closed id
-			maxAssignedSessionId++;
-			currentSessionIdAliasWebDriverTuple.id = Integer.toString(maxAssignedSessionId);
-		} else {
-			// reuse closed id
-			currentSessionIdAliasWebDriverTuple.id = closedSessionIds.pop();
-		}
-
-		// store the new tuple
-		openSessionIds.push(currentSessionIdAliasWebDriverTuple.id);
-		tupleBySessionId.put(currentSessionIdAliasWebDriverTuple.id, currentSessionIdAliasWebDriverTuple);
+		SessionIdAliasWebDriverTuple sessionIdAliasWebDriverTuple = new SessionIdAliasWebDriverTuple();
+		sessionIdAliasWebDriverTuple.alias = alias;
+		sessionIdAliasWebDriverTuple.webDriver = webDriver;
+		SessionContext context = sessionContext.get();
+		sessionIdAliasWebDriverTuple.context = context;
+		synchronized (sessionIdLock) {
+			if (closedSessionIds.isEmpty()) {
+				// no closed id
+				maxAssignedSessionId++;
+				sessionIdAliasWebDriverTuple.id = Integer.toString(maxAssignedSessionId);
+			} else {
+				// reuse closed id
+				sessionIdAliasWebDriverTuple.id = closedSessionIds.pop();
+			}
+			// store the new tuple while closeAll cannot reset the ids
+			tupleBySessionId.put(sessionIdAliasWebDriverTuple.id, sessionIdAliasWebDriverTuple);
+		}
+
 		if (alias != null && !"None".equalsIgnoreCase(alias)) {
-			tupleByAlias.put(currentSessionIdAliasWebDriverTuple.alias, currentSessionIdAliasWebDriverTuple);
+			tupleByAlias.put(sessionIdAliasWebDriverTuple.alias, sessionIdAliasWebDriverTuple);
 		}
-		return currentSessionIdAliasWebDriverTuple.id;
+		context.makeCurrent(sessionIdAliasWebDriverTuple);
+		return sessionIdAliasWebDriverTuple.id;
 	}
 
 	public WebDriver getCurrent() {
-		if (currentSessionIdAliasWebDriverTuple != null) {
-			return currentSessionIdAliasWebDriverTuple.webDriver;
+		SessionIdAliasWebDriverTuple sessionIdAliasWebDriverTuple = sessionContext.get().getCurrent();
+		if (sessionIdAliasWebDriverTuple != null) {
+			return sessionIdAliasWebDriverTuple.webDriver;
 		}
 		return null;
 	}
 
 	public String getCurrentSessionId() {
-		if (currentSessionIdAliasWebDriverTuple != null) {
-			return currentSessionIdAliasWebDriverTuple.id;
+		SessionIdAliasWebDriverTuple sessionIdAliasWebDriverTuple = sessionContext.get().getCurrent();
+		if (sessionIdAliasWebDriverTuple != null) {
+			return sessionIdAliasWebDriverTuple.id;
 		}
 		return null;
 	}
 
 	public void close() {
-		if (currentSessionIdAliasWebDriverTuple != null) {
-			// Close the webdriver and remove it from all stores
-			currentSessionIdAliasWebDriverTuple.webDriver.quit();
-			tupleBySessionId.remove(currentSessionIdAliasWebDriverTuple.id);
-			openSessionIds.remove(currentSessionIdAliasWebDriverTuple.id);
-			closedSessionIds.push(currentSessionIdAliasWebDriverTuple.id);
-			if (currentSessionIdAliasWebDriverTuple.alias != null) {
-				tupleByAlias.remove(currentSessionIdAliasWebDriverTuple.alias);
+		SessionContext context = sessionContext.get();
+		SessionIdAliasWebDriverTuple sessionIdAliasWebDriverTuple = context.getCurrent();
+		if (sessionIdAliasWebDriverTuple != null) {
+			try {
+				close(sessionIdAliasWebDriverTuple);
+			} finally {
+				// Set the last used webdriver as current webdriver
+				context.removeCurrent(sessionIdAliasWebDriverTuple);
 			}
+		}
+	}
 
-			// Set the last opened webdriver as current webdriver
-			if (openSessionIds.size() != 0) {
-				currentSessionIdAliasWebDriverTuple = tupleBySessionId.get(openSessionIds.pop());
-			} else {
-				currentSessionIdAliasWebDriverTuple = null;
+	/**
+	 * Closes the browsers opened in the session context of the current
+	 * thread. Browsers of other session contexts, e.g. of parallel runners,
+	 * stay open. All browsers are quit even if quitting one of them fails. The
+	 * first failure is rethrown afterwards.
+	 */
+	public void closeAll() {
+		SessionContext context = sessionContext.get();
+		RuntimeException failure = null;
+		for (SessionIdAliasWebDriverTuple sessionIdAliasWebDriverTuple : new ArrayList<>(tupleBySessionId.values())) {
+			if (sessionIdAliasWebDriverTuple.context != context) {
+				continue;
+			}
+			try {
+				close(sessionIdAliasWebDriverTuple);
+			} catch (RuntimeException e) {
+				if (failure == null) {
+					failure = e;
+				}
 			}
 		}
+		synchronized (sessionIdLock) {
+			// Browsers registered by other threads in the meantime keep their ids
+			if (tupleBySessionId.isEmpty()) {
+				maxAssignedSessionId = 0;
+				closedSessionIds.clear();
+			}
+		}
+		context.clear();
+		if (failure != null) {
+			throw failure;
+		}
 	}
 
-	public void closeAll() {
-		for (SessionIdAliasWebDriverTuple sessionIdAliasWebDriverTuple : tupleBySessionId.values()) {
-			sessionIdAliasWebDriverTuple.webDriver.quit();
-		}
-		maxAssignedSessionId = 0;
-		currentSessionIdAliasWebDriverTuple = null;
-		openSessionIds = new Stack<>();
-		closedSessionIds = new Stack<>();
-		tupleBySessionId = new TreeMap<>();
-		tupleByAlias = new TreeMap<>();
+	protected void close(SessionIdAliasWebDriverTuple sessionIdAliasWebDriverTuple) {
+		if (!sessionIdAliasWebDriverTuple.closed.compareAndSet(false, true)) {
+			// Already closed by another thread
+			return;
+		}
+		try {
+			WebDriverPool currentPool = pool;
+			if (currentPool == null || !currentPool.release(sessionIdAliasWebDriverTuple.webDriver)) {
+				sessionIdAliasWebDriverTuple.webDriver.quit();
+			}
+		} finally {
+			// Remove it from all stores
+			tupleBySessionId.remove(sessionIdAliasWebDriverTuple.id, sessionIdAliasWebDriverTuple);
+			if (sessionIdAliasWebDriverTuple.alias != null) {
+				tupleByAlias.remove(sessionIdAliasWebDriverTuple.alias, sessionIdAliasWebDriverTuple);
+			}
+			synchronized (sessionIdLock) {
+				closedSessionIds.push(sessionIdAliasWebDriverTuple.id);
+			}
+		}
 	}
 
 	public void switchBrowser(String sessionIdOrAlias) {
 		SessionIdAliasWebDriverTuple sessionIdAliasWebDriverTuple = tupleByAlias.get(sessionIdOrAlias);
-		if (sessionIdAliasWebDriverTuple != null) {
-			currentSessionIdAliasWebDriverTuple = sessionIdAliasWebDriverTuple;
-			openSessionIds.remove(currentSessionIdAliasWebDriverTuple.id);
-			openSessionIds.push(currentSessionIdAliasWebDriverTuple.id);
-			return;
+		if (sessionIdAliasWebDriverTuple == null) {
+			sessionIdAliasWebDriverTuple = tupleBySessionId.get(sessionIdOrAlias);
 		}
-
-		sessionIdAliasWebDriverTuple = tupleBySessionId.get(sessionIdOrAlias);
-		if (sessionIdAliasWebDriverTuple != null) {
-			currentSessionIdAliasWebDriverTuple = sessionIdAliasWebDriverTuple;
-			openSessionIds.remove(currentSessionIdAliasWebDriverTuple.id);
-			openSessionIds.push(currentSessionIdAliasWebDriverTuple.id);
+		if (sessionIdAliasWebDriverTuple != null && !sessionIdAliasWebDriverTuple.isClosed()) {
+			sessionContext.get().makeCurrent(sessionIdAliasWebDriverTuple);
 			return;
 		}
 		throw new SeleniumLibraryFatalException(String.format("Non-existing index or alias '%s'", sessionIdOrAlias));
 	}
 
+	/**
+	 * Gives the current thread and the threads it creates from now on their
+	 * own session context without a current browser.
+	 */
+	public void detachSessionContext() {
+		sessionContext.set(new SessionContext());
+	}
+
+	/**
+	 * Detaches the session context of the current thread if it was inherited
+	 * from another thread. Called when a thread starts running suites or
+	 * tests, so parallel runners in the same process each have their own
+	 * current browser, while the threads they create share it.
+	 */
+	public void ownSessionContext() {
+		if (sessionContext.get().owner != Thread.currentThread()) {
+			detachSessionContext();
+		}
+	}
+
+	/**
+	 * Returns the open browsers of all session contexts ordered by session id
+	 */
 	public Collection<SessionIdAliasWebDriverTuple> getWebDrivers() {
-		return tupleBySessionId.values();
+		return Collections.unmodifiableCollection(tupleBySessionId.values());
+	}
+
+	/**
+	 * The current browser and the most recently used browsers of one or more
+	 * threads. The most recently used open browser becomes current when the
+	 * current one is closed.
+	 */
+	protected static class SessionContext {
+
+		/**
+		 * The thread that created the session context
+		 */
+		protected final Thread owner = Thread.currentThread();
+
+		protected final Deque<SessionIdAliasWebDriverTuple> recentlyUsed = new ConcurrentLinkedDeque<>();
+
+		protected SessionIdAliasWebDriverTuple getCurrent() {
+			Iterator<SessionIdAliasWebDriverTuple> iterator = recentlyUsed.iterator();
+			while (iterator.hasNext()) {
+				SessionIdAliasWebDriverTuple sessionIdAliasWebDriverTuple = iterator.next();
+				if (!sessionIdAliasWebDriverTuple.isClosed()) {
+					return sessionIdAliasWebDriverTuple;
+				}
+				// Closed by another session context
+				iterator.remove();
+			}
+			return null;
+		}
+
+		protected void makeCurrent(SessionIdAliasWebDriverTuple sessionIdAliasWebDriverTuple) {
+			recentlyUsed.remove(sessionIdAliasWebDriverTuple);
+			recentlyUsed.push(sessionIdAliasWebDriverTuple);
+		}
+
+		protected void removeCurrent(SessionIdAliasWebDriverTuple sessionIdAliasWebDriverTuple) {
+			recentlyUsed.remove(sessionIdAliasWebDriverTuple);
+		}
+
+		protected void clear() {
+			recentlyUsed.clear();
+		}
 	}
 
 	public static class SessionIdAliasWebDriverTuple {
 		public String id;
 		public String alias;
 		public WebDriver webDriver;
+
+		/**
+		 * The session context that opened the browser
+		 */
+		protected SessionContext context;
+
+		protected final AtomicBoolean closed = new AtomicBoolean();
+
+		public boolean isClosed() {
+			return closed.get();
+		}
 	}
 }
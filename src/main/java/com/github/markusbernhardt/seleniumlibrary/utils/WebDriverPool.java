@@ -0,0 +1,335 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+
+/**
+ * Pool of idle browser sessions by launch key, e.g. browser name,
+ * capabilities, remote URL and browser options. Sessions handed back are
+ * reset instead of quit and are reused by the next launch with the same key.
+ * Sessions are evicted when they are too old, have been used too often or
+ * fail the health check. Idle sessions are quit on JVM shutdown.
+ * <p>
+ * Browsers with the Chrome DevTools Protocol get the cookies and storage of
+ * all origins cleared. Other browsers only reach the origins open in a window,
+ * so their sessions are evicted if the windows showed more than one origin.
+ * Origins only passed through, e.g. by redirects, cannot be seen there.
+ */
+public class WebDriverPool {
+
+	/**
+	 * Launches a new browser session
+	 */
+	@FunctionalInterface
+	public interface Launcher {
+
+		WebDriver launch() throws Exception;
+	}
+
+	/**
+	 * Maximum number of idle sessions kept per key
+	 */
+	protected final int maxIdlePerKey;
+
+	/**
+	 * Maximum age of a session in milliseconds, 0 for no limit
+	 */
+	protected final long maxAge;
+
+	/**
+	 * Maximum number of leases of a session, 0 for no limit
+	 */
+	protected final int maxUses;
+
+	protected final Map<List<String>, Deque<PooledSession>> idleSessions = new ConcurrentHashMap<>();
+
+	protected final Map<WebDriver, PooledSession> leasedSessions = new ConcurrentHashMap<>();
+
+	protected final AtomicLong launched = new AtomicLong();
+
+	protected final AtomicLong reused = new AtomicLong();
+
+	protected final AtomicLong evicted = new AtomicLong();
+
+	protected final Thread shutdownHook = new Thread(this::quitIdle, "WebDriverPool shutdown");
+
+	public WebDriverPool(int maxIdlePerKey, long maxAge, int maxUses) {
+		this.maxIdlePerKey = maxIdlePerKey;
+		this.maxAge = maxAge;
+		this.maxUses = maxUses;
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * Leases a healthy idle session for the key or launches a new one.
+	 */
+	public WebDriver acquire(List<String> key, Launcher launcher) throws Exception {
+		Deque<PooledSession> idle = idleSessions.get(key);
+		PooledSession session;
+		while (idle != null && (session = idle.pollFirst()) != null) {
+			if (isExpired(session) || !isHealthy(session.webDriver)) {
+				evict(session);
+				continue;
+			}
+			session.uses++;
+			leasedSessions.put(session.webDriver, session);
+			reused.incrementAndGet();
+			return session.webDriver;
+		}
+		session = launch(key, launcher);
+		session.uses++;
+		leasedSessions.put(session.webDriver, session);
+		return session.webDriver;
+	}
+
+	/**
+	 * Hands a leased session back. Returns false if the session is not managed
+	 * by this pool and has to be quit by the caller.
+	 */
+	public boolean release(WebDriver webDriver) {
+		PooledSession session = leasedSessions.remove(webDriver);
+		if (session == null) {
+			return false;
+		}
+		if (isExpired(session)) {
+			evict(session);
+			return true;
+		}
+		try {
+			if (!reset(webDriver)) {
+				evict(session);
+				return true;
+			}
+		} catch (RuntimeException e) {
+			evict(session);
+			return true;
+		}
+		Deque<PooledSession> idle = idleSessions.computeIfAbsent(session.key, key -> new ConcurrentLinkedDeque<>());
+		if (idle.size() >= maxIdlePerKey) {
+			evict(session);
+		} else {
+			idle.offerFirst(session);
+		}
+		return true;
+	}
+
+	/**
+	 * Launches sessions until the key has the given number of idle sessions,
+	 * but at most the maximum number of idle sessions per key. Sessions whose
+	 * reset fails are evicted.
+	 */
+	public void prewarm(List<String> key, int count, Launcher launcher) throws Exception {
+		Deque<PooledSession> idle = idleSessions.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+		for (int i = idle.size(); i < Math.min(count, maxIdlePerKey); i++) {
+			PooledSession session = launch(key, launcher);
+			boolean clean;
+			try {
+				clean = reset(session.webDriver);
+			} catch (RuntimeException e) {
+				clean = false;
+			}
+			if (clean) {
+				idle.offerLast(session);
+			} else {
+				evict(session);
+			}
+		}
+	}
+
+	/**
+	 * Quits all idle sessions. Leased sessions are quit when they are handed
+	 * back, as long as they are not reused.
+	 */
+	public void quitIdle() {
+		for (Deque<PooledSession> idle : idleSessions.values()) {
+			PooledSession session;
+			while ((session = idle.pollFirst()) != null) {
+				evict(session);
+			}
+		}
+	}
+
+	/**
+	 * Quits all idle sessions and stops pooling. Leased sessions are quit
+	 * when they are handed back.
+	 */
+	public void shutdown() {
+		quitIdle();
+		leasedSessions.clear();
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			// JVM is already shutting down
+		}
+	}
+
+	public int getMaxIdlePerKey() {
+		return maxIdlePerKey;
+	}
+
+	public int getIdleCount() {
+		int count = 0;
+		for (Deque<PooledSession> idle : idleSessions.values()) {
+			count += idle.size();
+		}
+		return count;
+	}
+
+	public long getLaunched() {
+		return launched.get();
+	}
+
+	public long getReused() {
+		return reused.get();
+	}
+
+	public long getEvicted() {
+		return evicted.get();
+	}
+
+	protected PooledSession launch(List<String> key, Launcher launcher) throws Exception {
+		PooledSession session = new PooledSession(key, launcher.launch());
+		launched.incrementAndGet();
+		return session;
+	}
+
+	protected boolean isExpired(PooledSession session) {
+		return (maxAge > 0 && System.currentTimeMillis() - session.createdAt > maxAge)
+				|| (maxUses > 0 && session.uses >= maxUses);
+	}
+
+	protected boolean isHealthy(WebDriver webDriver) {
+		try {
+			return !webDriver.getWindowHandles().isEmpty();
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Brings a session back to a blank state: Extra windows are closed, the
+	 * cookies and the web storage of the origins open in any window, or of all
+	 * origins if the browser supports it, are cleared and the remaining window
+	 * shows about:blank. Returns false if the session may keep data of other
+	 * origins and must not be reused.
+	 */
+	protected boolean reset(WebDriver webDriver) {
+		Set<String> origins = new LinkedHashSet<>();
+		List<String> windowHandles = new ArrayList<>(webDriver.getWindowHandles());
+		for (int i = windowHandles.size() - 1; i >= 0; i--) {
+			webDriver.switchTo().window(windowHandles.get(i));
+			String origin = getOrigin(webDriver.getCurrentUrl());
+			if (origin != null) {
+				origins.add(origin);
+			}
+			clearOrigin(webDriver);
+			if (i > 0) {
+				webDriver.close();
+			}
+		}
+		boolean cleared = clearAllOrigins(webDriver, origins);
+		webDriver.get("about:blank");
+		return cleared || origins.size() <= 1;
+	}
+
+	/**
+	 * Clears the cookies of all origins and the storage of the given origins
+	 * and of all origins with cookies through the Chrome DevTools Protocol.
+	 * Returns false if the browser does not support it.
+	 */
+	protected boolean clearAllOrigins(WebDriver webDriver, Set<String> origins) {
+		if (!(webDriver instanceof HasCdp)) {
+			return false;
+		}
+		HasCdp cdp = (HasCdp) webDriver;
+		try {
+			Set<String> allOrigins = new LinkedHashSet<>(origins);
+			Object cookies = cdp.executeCdpCommand("Network.getAllCookies", Collections.emptyMap()).get("cookies");
+			if (cookies instanceof List) {
+				for (Object cookie : (List<?>) cookies) {
+					String domain = String.valueOf(((Map<?, ?>) cookie).get("domain")).replaceFirst("^\\.", "");
+					allOrigins.add("https://" + domain);
+					allOrigins.add("http://" + domain);
+				}
+			}
+			for (String origin : allOrigins) {
+				Map<String, Object> parameters = new HashMap<>();
+				parameters.put("origin", origin);
+				parameters.put("storageTypes", "all");
+				cdp.executeCdpCommand("Storage.clearDataForOrigin", parameters);
+			}
+			cdp.executeCdpCommand("Network.clearBrowserCookies", Collections.emptyMap());
+			return true;
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns scheme, host and port of the URL, or null for URLs without
+	 * origin like about:blank and data: URLs
+	 */
+	protected static String getOrigin(String url) {
+		if (url == null) {
+			return null;
+		}
+		try {
+			URI uri = new URI(url);
+			if (uri.getHost() == null) {
+				return null;
+			}
+			return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() != -1 ? ":" + uri.getPort() : "");
+		} catch (URISyntaxException e) {
+			return null;
+		}
+	}
+
+	protected void clearOrigin(WebDriver webDriver) {
+		webDriver.switchTo().defaultContent();
+		webDriver.manage().deleteAllCookies();
+		if (webDriver instanceof JavascriptExecutor) {
+			((JavascriptExecutor) webDriver).executeScript(
+					"try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) { }");
+		}
+	}
+
+	protected void evict(PooledSession session) {
+		evicted.incrementAndGet();
+		try {
+			session.webDriver.quit();
+		} catch (RuntimeException e) {
+			// Unhealthy sessions might not be able to quit anymore
+		}
+	}
+
+	protected static class PooledSession {
+
+		protected final List<String> key;
+
+		protected final WebDriver webDriver;
+
+		protected final long createdAt = System.currentTimeMillis();
+
+		protected volatile int uses;
+
+		protected PooledSession(List<String> key, WebDriver webDriver) {
+			this.key = key;
+			this.webDriver = webDriver;
+		}
+	}
+}
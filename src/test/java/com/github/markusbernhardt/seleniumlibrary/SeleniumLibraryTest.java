@@ -0,0 +1,99 @@
+package com.github.markusbernhardt.seleniumlibrary;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+
+import com.github.markusbernhardt.seleniumlibrary.keywords.RunOnFailure;
+import com.github.markusbernhardt.seleniumlibrary.utils.WebDriverCache;
+
+public class SeleniumLibraryTest {
+
+    private static SeleniumLibrary library;
+
+    private RunOnFailure runOnFailure;
+
+    @BeforeClass
+    public static void initializeLibrary() {
+        library = new SeleniumLibrary();
+    }
+
+    @Before
+    public void initialize() {
+        runOnFailure = mock(RunOnFailure.class);
+        library.rof = runOnFailure;
+    }
+
+    @Test
+    public void testFailingKeywordRunsOnFailure() {
+        try {
+            library.runKeyword("Switch Browser", Arrays.asList("missing"), Collections.emptyMap());
+            fail("Switching to a missing browser must fail");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        verify(runOnFailure, times(1)).runOnFailure();
+    }
+
+    @Test
+    public void testPassingKeywordDoesNotRunOnFailure() {
+        assertEquals("5 seconds", library.runKeyword("Set Selenium Timeout", Arrays.asList("5 seconds")));
+        verify(runOnFailure, never()).runOnFailure();
+    }
+
+    @Test
+    public void testOnlyOutermostFailureRunsOnFailure() {
+        try {
+            library.dispatch("Outer", () -> library.dispatch("Inner", () -> {
+                throw new SeleniumLibraryNonFatalException("nested");
+            }));
+            fail("The nested failure must be rethrown");
+        } catch (SeleniumLibraryNonFatalException e) {
+            assertEquals("nested", e.getMessage());
+        }
+        verify(runOnFailure, times(1)).runOnFailure();
+    }
+
+    @Test
+    public void testParallelRunnersHaveOwnCurrentBrowser() throws InterruptedException {
+        WebDriverCache webDriverCache = library.bm.getWebDriverCache();
+        library.ROBOT_LIBRARY_LISTENER.startTest("Main", Collections.singletonMap("longname", "Suite.Main"));
+        WebDriver main = mock(WebDriver.class);
+        webDriverCache.register(main, "main");
+
+        WebDriver worker = mock(WebDriver.class);
+        AtomicReference<WebDriver> before = new AtomicReference<>();
+        AtomicReference<WebDriver> inTimeoutThread = new AtomicReference<>();
+        Thread runner = new Thread(() -> {
+            library.ROBOT_LIBRARY_LISTENER.startTest("Worker", Collections.singletonMap("longname", "Suite.Worker"));
+            before.set(library.bm.getCurrentWebDriver());
+            webDriverCache.register(worker, "worker");
+            Thread timeoutThread = new Thread(() -> inTimeoutThread.set(library.bm.getCurrentWebDriver()));
+            timeoutThread.start();
+            try {
+                timeoutThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        runner.start();
+        runner.join();
+
+        assertNull(before.get());
+        assertSame(worker, inTimeoutThread.get());
+        library.ROBOT_LIBRARY_LISTENER.startTest("Main 2", Collections.singletonMap("longname", "Suite.Main 2"));
+        assertSame(main, library.bm.getCurrentWebDriver());
+        library.runKeyword("Close All Browsers", Collections.emptyList());
+        verify(main).quit();
+        verify(worker, never()).quit();
+        assertEquals(1, webDriverCache.getWebDrivers().size());
+    }
+}
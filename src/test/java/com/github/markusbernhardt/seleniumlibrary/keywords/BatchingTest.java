@@ -0,0 +1,196 @@
+package com.github.markusbernhardt.seleniumlibrary.keywords;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.openqa.selenium.support.ui.Select;
+
+import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
+
+public class BatchingTest {
+
+    private static final String PAGE = "data:text/html,<input id='user'><input id='pass' type='password'>"
+            + "<input id='fixed' value='x' readonly><input id='terms' type='checkbox' checked>"
+            + "<input type='radio' name='size' value='s' checked><input type='radio' name='size' value='l'>"
+            + "<input type='radio' name='size' value=\"it's\">"
+            + "<select id='country'><option value='de'>Germany</option><option value='fr'>France</option></select>"
+            + "<div id='events'></div><script>document.getElementById('user').addEventListener('change', function () {"
+            + "document.getElementById('events').textContent += 'c'; });</script>"
+            + "<input id='tracked'><div id='seen'></div><script>var tracked = document.getElementById('tracked');"
+            + "var trackedValue = '', native = Object.getOwnPropertyDescriptor(Object.getPrototypeOf(tracked), 'value');"
+            + "Object.defineProperty(tracked, 'value', { configurable: true,"
+            + "get: function () { return native.get.call(this); },"
+            + "set: function (value) { trackedValue = String(value); native.set.call(this, value); } });"
+            + "tracked.addEventListener('input', function () { if (tracked.value !== trackedValue) {"
+            + "trackedValue = tracked.value; document.getElementById('seen').textContent += tracked.value; } });</script>";
+
+    private HtmlUnitDriver webDriver;
+
+    private Batching batching;
+
+    @Before
+    public void initialize() {
+        webDriver = new HtmlUnitDriver(true);
+        webDriver.get(PAGE);
+        batching = new Batching();
+        batching.logging = new Logging();
+        batching.browserManagement = mock(BrowserManagement.class);
+        when(batching.browserManagement.getCurrentWebDriver()).thenReturn(webDriver);
+        batching.element = mock(Element.class);
+        batching.formElement = mock(FormElement.class);
+        batching.selectElement = mock(SelectElement.class);
+    }
+
+    @After
+    public void cleanup() {
+        webDriver.quit();
+    }
+
+    @Test
+    public void testRunsKeywordsInOneScript() {
+        batching.runKeywordsBatched("Input Text", "id:user", "demo", "AND", "input_password", "pass", "secret", "AND",
+                "Unselect Checkbox", "terms", "AND", "Select Radio Button", "size", "l", "AND",
+                "Select From List By Label", "country", "France");
+
+        assertEquals("demo", webDriver.findElement(By.id("user")).getAttribute("value"));
+        assertEquals("c", webDriver.findElement(By.id("events")).getText());
+        assertEquals("secret", webDriver.findElement(By.id("pass")).getAttribute("value"));
+        assertFalse(webDriver.findElement(By.id("terms")).isSelected());
+        assertTrue(webDriver.findElement(By.cssSelector("[value=l]")).isSelected());
+        assertEquals("fr", new Select(webDriver.findElement(By.id("country"))).getFirstSelectedOption()
+                .getAttribute("value"));
+        verifyNoInteractions(batching.element, batching.formElement, batching.selectElement);
+    }
+
+    @Test
+    public void testValueTrackersSeeTheChange() {
+        batching.runKeywordsBatched("Input Text", "tracked", "demo");
+
+        assertEquals("demo", webDriver.findElement(By.id("tracked")).getAttribute("value"));
+        assertEquals("demo", webDriver.findElement(By.id("seen")).getText());
+    }
+
+    @Test
+    public void testRadioButtonValuesAreQuoted() {
+        batching.runKeywordsBatched("Select Radio Button", "size", "it's");
+
+        assertTrue(webDriver.findElement(By.cssSelector("[value=\"it's\"]")).isSelected());
+        verifyNoInteractions(batching.formElement);
+    }
+
+    @Test
+    public void testScriptErrorsRunOnlyThatKeyword() {
+        batching.runKeywordsBatched("Input Text", "user", "demo", "AND", "Input Text", "xpath://input[", "x", "AND",
+                "Input Text", "pass", "secret");
+
+        assertEquals("c", webDriver.findElement(By.id("events")).getText());
+        verify(batching.formElement).inputText("xpath://input[", "x");
+        verifyNoMoreInteractions(batching.formElement);
+        assertEquals("secret", webDriver.findElement(By.id("pass")).getAttribute("value"));
+    }
+
+    @Test
+    public void testInterruptedBatchResumesAfterDoneKeywords() {
+        HtmlUnitDriver interrupted = new HtmlUnitDriver(true) {
+
+            @Override
+            public Object executeScript(String script, Object... args) {
+                Object result = super.executeScript(script, args);
+                if (script.equals(Batching.BATCH_SCRIPT)) {
+                    // Leave the progress in the page like an interrupted script
+                    super.executeScript("window.seleniumLibraryBatch = { id: arguments[0], done: 1 };", args[1]);
+                    throw new WebDriverException("interrupted");
+                }
+                return result;
+            }
+        };
+        try {
+            interrupted.get(PAGE);
+            when(batching.browserManagement.getCurrentWebDriver()).thenReturn(interrupted);
+            batching.runKeywordsBatched("Input Text", "user", "demo", "AND", "Input Text", "pass", "secret");
+
+            assertEquals("c", interrupted.findElement(By.id("events")).getText());
+            verify(batching.formElement).inputText("pass", "secret");
+            verifyNoMoreInteractions(batching.formElement);
+        } finally {
+            interrupted.quit();
+        }
+    }
+
+    @Test
+    public void testUnknownProgressFails() {
+        HtmlUnitDriver interrupted = new HtmlUnitDriver(true) {
+
+            @Override
+            public Object executeScript(String script, Object... args) {
+                if (script.equals(Batching.BATCH_SCRIPT)) {
+                    throw new WebDriverException("interrupted");
+                }
+                return super.executeScript(script, args);
+            }
+        };
+        try {
+            interrupted.get(PAGE);
+            when(batching.browserManagement.getCurrentWebDriver()).thenReturn(interrupted);
+            batching.runKeywordsBatched("Input Text", "user", "demo");
+            fail();
+        } catch (SeleniumLibraryNonFatalException e) {
+            assertTrue(e.getMessage().startsWith("Keyword 1 of the batch, 'Input Text', failed: "
+                    + "Batch script failed and may have run some keywords:"));
+            verifyNoInteractions(batching.formElement);
+        } finally {
+            interrupted.quit();
+        }
+    }
+
+    @Test
+    public void testRunsUnsupportedKeywordsOneByOne() {
+        batching.runKeywordsBatched("Input Text", "fixed", "y", "AND", "Select From List By Index", "country", "1");
+
+        verify(batching.formElement).inputText("fixed", "y");
+        assertEquals("fr", new Select(webDriver.findElement(By.id("country"))).getFirstSelectedOption()
+                .getAttribute("value"));
+    }
+
+    @Test
+    public void testFailuresNameTheKeyword() {
+        doThrow(new SeleniumLibraryNonFatalException("Element locator 'id:missing' did not match any elements."))
+                .when(batching.formElement).inputText("id:missing", "x");
+        try {
+            batching.runKeywordsBatched("Input Text", "user", "demo", "AND", "Input Text", "id:missing", "x", "AND",
+                    "Input Text", "pass", "secret");
+            fail();
+        } catch (SeleniumLibraryNonFatalException e) {
+            assertEquals("Keyword 2 of the batch, 'Input Text', failed: "
+                    + "Element locator 'id:missing' did not match any elements.", e.getMessage());
+        }
+        verify(batching.formElement).inputText("id:missing", "x");
+        assertEquals("demo", webDriver.findElement(By.id("user")).getAttribute("value"));
+        assertEquals("", webDriver.findElement(By.id("pass")).getAttribute("value"));
+
+        try {
+            batching.runKeywordsBatched("Select From List By Value", "country", "it");
+            fail();
+        } catch (SeleniumLibraryNonFatalException e) {
+            assertEquals("Keyword 1 of the batch, 'Select From List By Value', failed: "
+                    + "Option 'it' not in list 'country'.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRejectsKeywordsThatCannotBeBatched() {
+        try {
+            batching.runKeywordsBatched("Input Text", "user", "demo", "AND", "Click Element", "user");
+            fail();
+        } catch (SeleniumLibraryNonFatalException e) {
+            assertEquals("Keyword 2 of the batch, 'Click Element', cannot be batched.", e.getMessage());
+        }
+        assertEquals("", webDriver.findElement(By.id("user")).getAttribute("value"));
+    }
+}
@@ -6,10 +6,13 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxProfile;
@@ -104,4 +107,42 @@ public class BrowserManagementTest {
         assertTrue(cap.asMap().toString().contains("--start-maximized"));
         assertTrue(cap.asMap().toString().contains("--headless"));
     }
+
+    @Test
+    public void testOpenBrowsersInParallel() throws Exception {
+        BrowserManagement parallel = spy(new BrowserManagement());
+        parallel.logging = new Logging();
+        WebDriver slow = mock(WebDriver.class);
+        WebDriver fast = mock(WebDriver.class);
+        doAnswer(invocation -> {
+            Thread.sleep(200);
+            return slow;
+        }).doReturn(fast).when(parallel).launchWebDriver(eq("chrome"), any(), any(), any());
+
+        List<String> sessionIds = parallel.openBrowsersInParallel("about:blank", "user A, user B", "chrome", "None",
+                "None", "None", "2");
+        assertEquals(2, sessionIds.size());
+        assertTrue(sessionIds.containsAll(Arrays.asList("1", "2")));
+        // The browser of the last alias is current
+        assertEquals(sessionIds.get(1), parallel.getWebDriverCache().getCurrentSessionId());
+        // The fast browser is registered first
+        parallel.switchBrowser("1");
+        assertSame(fast, parallel.getCurrentWebDriver());
+        verify(slow).get("about:blank");
+    }
+
+    @Test
+    public void testCapabilitiesAreParsedOnce() {
+        BrowserManagement cached = spy(new BrowserManagement());
+        cached.logging = new Logging();
+        String browserOptions = "{\"args\":[\"start-maximized\"]}";
+        Capabilities first = cached.createCapabilities("chrome", "{\"acceptInsecureCerts\":true}", browserOptions);
+        ((ChromeOptions) first).addArguments("--headless");
+        Capabilities second = cached.createCapabilities("chrome", "{\"acceptInsecureCerts\":true}", browserOptions);
+
+        verify(cached, times(1)).buildCapabilities(any(), any(), any());
+        assertNotSame(first, second);
+        assertEquals(Boolean.TRUE, second.getCapability("acceptInsecureCerts"));
+        assertFalse(second.asMap().toString().contains("--headless"));
+    }
 }
@@ -0,0 +1,45 @@
+package com.github.markusbernhardt.seleniumlibrary.keywords;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
+
+public class ElementTest {
+
+    private HtmlUnitDriver webDriver;
+
+    private Element element;
+
+    @Before
+    public void initialize() {
+        webDriver = new HtmlUnitDriver(true);
+        webDriver.get("data:text/html,<p id='text'>Loading</p><script>setTimeout(function () {"
+                + "document.getElementById('text').textContent = 'Do' + 'ne'; }, 300);</script>");
+        element = new Element();
+        element.logging = new Logging();
+        element.browserManagement = mock(BrowserManagement.class);
+        when(element.browserManagement.getCurrentWebDriver()).thenReturn(webDriver);
+    }
+
+    @After
+    public void cleanup() {
+        webDriver.quit();
+    }
+
+    @Test
+    public void testPageContainsWaitsForImplicitWait() {
+        when(element.browserManagement.getImplicitWait()).thenReturn(5.0);
+        element.pageShouldContain("Done", "INFO");
+    }
+
+    @Test(expected = SeleniumLibraryNonFatalException.class)
+    public void testPageContainsAnswersAtOnceWithoutImplicitWait() {
+        element.pageShouldContain("Done", "INFO");
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.markusbernhardt.seleniumlibrary.keywords;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
+
+public class LoggingTest {
+
+    private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+    private PrintStream originalStdout;
+
+    private Logging logging;
+
+    @Before
+    public void initialize() {
+        originalStdout = System.out;
+        System.setOut(new PrintStream(stdout, true));
+        logging = new Logging();
+    }
+
+    @After
+    public void cleanup() {
+        logging.setLibraryLogLevel("TRACE");
+        System.setOut(originalStdout);
+    }
+
+    @Test
+    public void testMessagesAreWrittenAtEveryKeywordBoundary() {
+        Logging.startBuffering();
+        logging.info("outer");
+        logging.debug("second %d", 2);
+        assertEquals("", stdout.toString());
+        Logging.startBuffering();
+        assertEquals(String.format("*INFO* outer%n*DEBUG* second 2%n"), stdout.toString());
+        logging.html("<img src='screenshot.png'>");
+        Logging.warning("inner");
+        Logging.endBuffering();
+        assertEquals(String.format("*INFO* outer%n*DEBUG* second 2%n*HTML* <img src='screenshot.png'>%n*WARN* inner%n"),
+                stdout.toString());
+        logging.info("after");
+        Logging.endBuffering();
+        assertTrue(stdout.toString().endsWith(String.format("*WARN* inner%n*INFO* after%n")));
+    }
+
+    @Test
+    public void testMessagesAreWrittenImmediatelyWithoutBuffering() {
+        logging.warn("now");
+        assertEquals(String.format("*WARN* now%n"), stdout.toString());
+    }
+
+    @Test
+    public void testLevelsBelowThresholdAreDropped() {
+        assertEquals("TRACE", logging.setLibraryLogLevel("info"));
+        logging.debug("dropped %s", new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("formatted although disabled");
+            }
+        });
+        logging.trace("dropped");
+        logging.html("<b>kept</b>");
+        assertEquals(String.format("*HTML* <b>kept</b>%n"), stdout.toString());
+        assertEquals("INFO", logging.setLibraryLogLevel("trace"));
+    }
+
+    @Test(expected = SeleniumLibraryNonFatalException.class)
+    public void testInvalidLevelFailsEvenIfDisabled() {
+        logging.setLibraryLogLevel("error");
+        logging.log("message", "verbose");
+    }
+}
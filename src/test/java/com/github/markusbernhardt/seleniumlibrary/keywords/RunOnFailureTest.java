@@ -0,0 +1,43 @@
+package com.github.markusbernhardt.seleniumlibrary.keywords;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RunOnFailureTest {
+
+    private RunOnFailure runOnFailure;
+
+    @Before
+    public void initialize() {
+        runOnFailure = new RunOnFailure();
+    }
+
+    @Test
+    public void testNoLimitsByDefault() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(runOnFailure.acquireRun());
+        }
+    }
+
+    @Test
+    public void testMaxPerTestIsResetByNextTest() {
+        runOnFailure.setRunOnFailurePolicy("0", 1);
+        assertTrue(runOnFailure.acquireRun());
+        assertFalse(runOnFailure.acquireRun());
+        runOnFailure.startTest("Suite.Next Test");
+        assertTrue(runOnFailure.acquireRun());
+    }
+
+    @Test
+    public void testMinInterval() {
+        runOnFailure.setRunOnFailurePolicy("1 minute", 0);
+        assertTrue(runOnFailure.acquireRun());
+        assertFalse(runOnFailure.acquireRun());
+        runOnFailure.startTest("Suite.Next Test");
+        assertFalse(runOnFailure.acquireRun());
+        runOnFailure.lastRun -= 60 * 1000;
+        assertTrue(runOnFailure.acquireRun());
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.markusbernhardt.seleniumlibrary.keywords;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.openqa.selenium.support.ui.Select;
+
+import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
+
+public class SelectElementTest {
+
+    private static final String PAGE = "data:text/html,<select id='single'><option value='de'>Germany</option>"
+            + "<option value='fr' selected>  France </option><option>Italy</option></select>"
+            + "<select id='multi' multiple><option value='a'>Apple</option><option value='b' disabled>Banana</option>"
+            + "<option value='c'>Cherry</option><option value='c'>Cherry again</option></select>"
+            + "<select id='duplicates'><option value='y'>Other</option><option value='x'>First</option>"
+            + "<option value='x'>Second</option></select>"
+            + "<select id='hidden' style='display: none'><option value='h'>Hidden</option><option value='i'>Shown</option></select>"
+            + "<select id='off' disabled><option value='o'>Off</option><option value='p'>On</option></select>"
+            + "<div id='changes'></div><script>document.getElementById('multi').addEventListener('change', function () {"
+            + "document.getElementById('changes').textContent += 'x'; });</script>";
+
+    private HtmlUnitDriver webDriver;
+
+    private SelectElement selectElement;
+
+    @Before
+    public void initialize() {
+        webDriver = new HtmlUnitDriver(true);
+        webDriver.get(PAGE);
+        selectElement = new SelectElement();
+        selectElement.logging = new Logging();
+        selectElement.browserManagement = mock(BrowserManagement.class);
+        when(selectElement.browserManagement.getCurrentWebDriver()).thenReturn(webDriver);
+        selectElement.element = mock(Element.class);
+        when(selectElement.element.elementFind(anyString(), anyBoolean(), anyBoolean(), eq("select")))
+                .thenAnswer(invocation -> Collections
+                        .singletonList(webDriver.findElement(By.id(invocation.getArgument(0)))));
+    }
+
+    @After
+    public void cleanup() {
+        webDriver.quit();
+    }
+
+    @Test
+    public void testReadMatchesSelect() {
+        for (String locator : Arrays.asList("single", "multi")) {
+            Select select = new Select(webDriver.findElement(By.id(locator)));
+            assertEquals(selectElement.getLabelsForOptions(select.getOptions()), selectElement.getListItems(locator));
+            SelectElement.SelectListOptions options = selectElement.readSelectList(locator);
+            assertEquals(select.isMultiple(), options.multiple);
+            assertEquals(selectElement.getValuesForOptions(select.getOptions()), options.values);
+        }
+        assertEquals("France", selectElement.getSelectedListLabel("single"));
+        assertEquals("fr", selectElement.getSelectedListValue("single"));
+        assertEquals(Arrays.asList("fr"), selectElement.getSelectedListValues("single"));
+        selectElement.listShouldHaveNoSelections("multi");
+    }
+
+    @Test
+    public void testSelectInOneScript() {
+        selectElement.selectFromList("single", "Italy");
+        assertEquals("Italy", selectElement.getSelectedListValue("single"));
+        selectElement.selectFromListByIndex("single", "0");
+        assertEquals("Germany", selectElement.getSelectedListLabel("single"));
+
+        selectElement.selectFromListByValue("multi", "a", "c");
+        assertEquals(Arrays.asList("Apple", "Cherry", "Cherry again"), selectElement.getSelectedListLabels("multi"));
+        assertEquals("x", webDriver.findElement(By.id("changes")).getText());
+        selectElement.selectFromListByLabel("multi", "Apple");
+        assertEquals("x", webDriver.findElement(By.id("changes")).getText());
+    }
+
+    @Test
+    public void testDuplicateValueSelectsFirstOptionOfSingleSelect() {
+        selectElement.selectFromListByValue("duplicates", "x");
+        assertEquals("First", selectElement.getSelectedListLabel("duplicates"));
+        Select select = new Select(webDriver.findElement(By.id("duplicates")));
+        select.selectByValue("y");
+        select.selectByValue("x");
+        assertEquals("First", select.getFirstSelectedOption().getText());
+    }
+
+    @Test
+    public void testMissingAndDisabledOptions() {
+        try {
+            selectElement.selectFromListByValue("multi", "a", "missing", "c");
+            fail("Missing values must fail");
+        } catch (NoSuchElementException e) {
+            assertTrue(e.getMessage().startsWith("Cannot locate option with value: missing"));
+        }
+        assertEquals(Arrays.asList("a"), selectElement.getSelectedListValues("multi"));
+
+        try {
+            selectElement.selectFromList("multi", "Cherry", "nothing");
+            fail("Missing items of multi-select lists must fail");
+        } catch (SeleniumLibraryNonFatalException e) {
+            assertEquals("Options 'nothing' not in list 'multi'.", e.getMessage());
+        }
+
+        try {
+            selectElement.selectAllFromList("multi");
+            fail("Disabled options must fail");
+        } catch (UnsupportedOperationException e) {
+            assertEquals("You may not select a disabled option", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDisabledOptionIsNotSelected() {
+        try {
+            selectElement.selectFromListByValue("multi", "a", "b");
+            fail("Disabled options must fail");
+        } catch (UnsupportedOperationException e) {
+            assertEquals("You may not select a disabled option", e.getMessage());
+        }
+        assertFalse(webDriver.findElement(By.cssSelector("#multi [value=b]")).isSelected());
+    }
+
+    @Test
+    public void testListsTheUserCannotUseFail() {
+        String[][] lists = { { "hidden", "i", "h" }, { "off", "p", "o" } };
+        for (String[] list : lists) {
+            try {
+                selectElement.selectFromListByValue(list[0], list[1]);
+                fail(list[0]);
+            } catch (RuntimeException e) {
+                // expected
+            }
+            assertEquals(list[2], selectElement.getSelectedListValue(list[0]));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.markusbernhardt.seleniumlibrary.keywords;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+public class TableElementTest {
+
+    private HtmlUnitDriver webDriver;
+
+    private TableElement tableElement;
+
+    @Before
+    public void initialize() {
+        webDriver = new HtmlUnitDriver(true);
+        webDriver.get("data:text/html,<div id='container'></div><script>setTimeout(function () {"
+                + "document.getElementById('container').innerHTML = '<table id=\"late\"><tr><td>a</td><td>b</td></tr></table>';"
+                + "}, 300);</script>");
+        tableElement = new TableElement();
+        tableElement.logging = new Logging();
+        tableElement.browserManagement = mock(BrowserManagement.class);
+        when(tableElement.browserManagement.getCurrentWebDriver()).thenReturn(webDriver);
+    }
+
+    @After
+    public void cleanup() {
+        webDriver.quit();
+    }
+
+    @Test
+    public void testLateTableIsFoundWithImplicitWait() {
+        webDriver.manage().timeouts().implicitlyWait(Duration.ofSeconds(5));
+        List<List<String>> data = tableElement.getTableData("late", "all", "INFO");
+        assertEquals(Arrays.asList(Arrays.asList("a", "b")), data);
+        tableElement.tableShouldContain("late", "b", "INFO");
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.markusbernhardt.seleniumlibrary.keywords;
+
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import com.github.markusbernhardt.seleniumlibrary.locators.ElementFinder;
+
+public class WaitingTest {
+
+    private HtmlUnitDriver htmlUnitDriver;
+
+    @Before
+    public void initialize() {
+        htmlUnitDriver = new HtmlUnitDriver(true);
+        htmlUnitDriver.manage().timeouts().scriptTimeout(Duration.ofSeconds(10));
+        htmlUnitDriver.get("data:text/html,<div id='container'></div><script>setTimeout(function () {"
+                + "var result = document.createElement('span'); result.id = 'result'; result.textContent = 'Done';"
+                + "document.getElementById('container').appendChild(result); }, 200);</script>");
+    }
+
+    @After
+    public void cleanup() {
+        htmlUnitDriver.quit();
+    }
+
+    @Test
+    public void testObserverResolvesOnMutation() {
+        Object observed = htmlUnitDriver.executeAsyncScript(Waiting.OBSERVER_SCRIPT, "present", true,
+                ElementFinder.getResolverArguments("result", null), 5000L);
+        assertEquals(Boolean.TRUE, observed);
+        observed = htmlUnitDriver.executeAsyncScript(Waiting.OBSERVER_SCRIPT, "text", true, "Done", 5000L);
+        assertEquals(Boolean.TRUE, observed);
+    }
+
+    @Test
+    public void testObserverSearchesTextInFrames() {
+        htmlUnitDriver.get("data:text/html,<iframe src='data:text/html,<p>Framed</p>'></iframe>");
+        Object observed = htmlUnitDriver.executeAsyncScript(Waiting.OBSERVER_SCRIPT, "text", true, "Framed", 100L);
+        assertEquals(Boolean.TRUE, observed);
+    }
+
+    @Test
+    public void testObserverResolvesFalseAfterBudget() {
+        Object observed = htmlUnitDriver.executeAsyncScript(Waiting.OBSERVER_SCRIPT, "visible", true,
+                ElementFinder.getResolverArguments("css:#missing", null), 100L);
+        assertEquals(Boolean.FALSE, observed);
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.markusbernhardt.seleniumlibrary.locators;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+public class ElementDataTest {
+
+    private static final String PAGE = "data:text/html,<ul><li id='a' data-id='1' class='first'>Alice</li>"
+            + "<li id='b' data-id='2' style='color: red'>Bob  <b>B.</b></li><li id='c'>Carol</li></ul>"
+            + "<input id='check' type='checkbox' checked>"
+            + "<input id='unchecked' type='checkbox' class='box' style='color: red' value='yes'>"
+            + "<input id='field' type='text' readonly disabled value='text'><a id='link' href='http://example.com/page'>Link</a>"
+            + "<form><input id='untyped'></form>";
+
+    private static final List<String> ATTRIBUTES = Arrays.asList("@checked", "@disabled", "@readonly", "@style",
+            "@class", "@value", "@href", "@type", "attribute:id", "@missing");
+
+    private static final List<String> NAMES = Arrays.asList("text", "tag", "@data-id", "attribute:class", "id",
+            "css:color");
+
+    private HtmlUnitDriver webDriver;
+
+    @Before
+    public void initialize() {
+        webDriver = new HtmlUnitDriver(true);
+        webDriver.get(PAGE);
+    }
+
+    @After
+    public void cleanup() {
+        webDriver.quit();
+    }
+
+    @Test
+    public void testQueryMatchesSeparateReads() {
+        for (String locator : Arrays.asList("css:li", "xpath://li", "tag:li", "b", "dom:document.getElementsByTagName('li')")) {
+            List<Map<String, Object>> expected = new ArrayList<>();
+            for (WebElement element : ElementFinder.find(webDriver, locator)) {
+                expected.add(ElementData.read(element, NAMES));
+            }
+            assertEquals(locator, expected, ElementData.query(webDriver, locator, NAMES));
+        }
+    }
+
+    @Test
+    public void testAttributesMatchGetAttribute() {
+        List<Map<String, Object>> expected = new ArrayList<>();
+        for (WebElement element : ElementFinder.find(webDriver, "css:body > input")) {
+            Map<String, Object> attributes = new LinkedHashMap<>();
+            for (String name : ATTRIBUTES) {
+                attributes.put(name, element.getAttribute(name.startsWith("@") ? name.substring(1) : name.substring(10)));
+            }
+            expected.add(attributes);
+            assertEquals(attributes, ElementData.read(element, ATTRIBUTES));
+        }
+        assertEquals(expected, ElementData.query(webDriver, "css:body > input", ATTRIBUTES));
+        // Attributes without value fall back to the property
+        assertEquals("text", ElementData.query(webDriver, "untyped", Arrays.asList("@type")).get(0).get("@type"));
+        List<String> href = Arrays.asList("@href");
+        assertEquals(ElementData.read(webDriver.findElement(By.id("link")), href),
+                ElementData.query(webDriver, "link", href).get(0));
+        assertNull(expected.get(1).get("@checked"));
+        assertEquals("true", expected.get(0).get("@checked"));
+        assertEquals("true", expected.get(2).get("@disabled"));
+    }
+
+    @Test
+    public void testValues() {
+        List<Map<String, Object>> data = ElementData.query(webDriver, "css:li", NAMES);
+        assertEquals(3, data.size());
+        assertEquals("Bob B.", data.get(1).get("text"));
+        assertEquals("2", data.get(1).get("@data-id"));
+        assertEquals("li", data.get(1).get("tag"));
+        assertNull(data.get(2).get("@data-id"));
+        assertEquals("rgba(255, 0, 0, 1)", data.get(1).get("css:color"));
+        assertEquals("first", ElementData.query(webDriver, "a", Arrays.asList("property:className")).get(0)
+                .get("property:className"));
+        assertEquals(Boolean.TRUE, ElementData.query(webDriver, "check", Arrays.asList("checked")).get(0).get("checked"));
+        assertTrue(ElementData.query(webDriver, "missing", NAMES).isEmpty());
+    }
+
+    @Test
+    public void testNoJavaScript() {
+        HtmlUnitDriver withoutJavaScript = new HtmlUnitDriver(false);
+        try {
+            withoutJavaScript.get(PAGE);
+            assertNull(ElementData.query(withoutJavaScript, "css:li", NAMES));
+        } finally {
+            withoutJavaScript.quit();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.markusbernhardt.seleniumlibrary.locators;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import com.github.markusbernhardt.seleniumlibrary.locators.ElementFinder.LocatorKey;
+import com.github.markusbernhardt.seleniumlibrary.locators.ElementFinder.ParsedLocator;
+import com.github.markusbernhardt.seleniumlibrary.locators.ElementFinder.StrategyEnum;
+
+public class ElementFinderTest {
+
+    private WebDriver webDriver;
+
+    @Before
+    public void initialize() {
+        ElementFinder.clearLocatorCache();
+        webDriver = mock(WebDriver.class);
+        when(webDriver.findElements(any(By.class))).thenReturn(new ArrayList<>());
+    }
+
+    @After
+    public void cleanup() {
+        ElementFinder.setJavaScriptResolver(false);
+    }
+
+    @Test
+    public void testParseStrategyAndCriteria() {
+        ParsedLocator parsed = ElementFinder.parse(new LocatorKey("css: div.my_class", null));
+        assertEquals(StrategyEnum.CSS, parsed.strategy);
+        assertEquals("div.my_class", parsed.findByCoordinates.criteria);
+
+        parsed = ElementFinder.parse(new LocatorKey("//div[@id='a:b']", null));
+        assertEquals(StrategyEnum.DEFAULT, parsed.strategy);
+        assertEquals("//div[@id='a:b']", parsed.findByCoordinates.criteria);
+
+        parsed = ElementFinder.parse(new LocatorKey("unknown:value", null));
+        assertEquals(StrategyEnum.DEFAULT, parsed.strategy);
+        assertEquals("value", parsed.findByCoordinates.criteria);
+    }
+
+    @Test
+    public void testParseTagConstraints() {
+        ParsedLocator parsed = ElementFinder.parse(new LocatorKey("id:field", "text field"));
+        assertEquals("input", parsed.findByCoordinates.tag);
+        assertTrue(parsed.findByCoordinates.constraints.get("type").contains("password"));
+        assertEquals("file", parsed.findByCoordinates.constraintValues.get("type")[12]);
+    }
+
+    @Test
+    public void testRepeatedLookupsHitCache() {
+        long hits = ElementFinder.getLocatorCacheHits();
+        long misses = ElementFinder.getLocatorCacheMisses();
+        ElementFinder.find(webDriver, "id:field", "checkbox");
+        ElementFinder.find(webDriver, "id:field", "checkbox");
+        ElementFinder.find(webDriver, "id:field", null);
+        assertEquals(hits + 1, ElementFinder.getLocatorCacheHits());
+        assertEquals(misses + 2, ElementFinder.getLocatorCacheMisses());
+    }
+
+    @Test
+    public void testAddLocationStrategyInvalidatesCache() {
+        ElementFinder.find(webDriver, "byTestId:field");
+        ElementFinder.addLocationStrategy("byTestId", "return null;", null);
+        ParsedLocator parsed = ElementFinder.parsedLocatorCache.get(new LocatorKey("byTestId:field", null),
+                ElementFinder::parse);
+        assertTrue(parsed.strategy instanceof ElementFinder.CustomStrategy);
+    }
+
+    @Test
+    public void testBaseUrlFetchedForEveryLookup() {
+        when(webDriver.getCurrentUrl()).thenReturn("http://localhost/page/index.html");
+        ElementFinder.find(webDriver, "link", "a");
+        long hits = ElementFinder.keyAttrsXpathCache.getHits();
+        ElementFinder.find(webDriver, "link", "a");
+        assertEquals(hits + 1, ElementFinder.keyAttrsXpathCache.getHits());
+
+        // The page navigated on its own
+        when(webDriver.getCurrentUrl()).thenReturn("http://localhost/other/index.html");
+        ElementFinder.find(webDriver, "link", "a");
+        verify(webDriver, times(3)).getCurrentUrl();
+        verify(webDriver).findElements(argThat((By by) -> by.toString().contains("'http://localhost/other/link'")));
+    }
+
+    @Test
+    public void testJavaScriptResolverMatchesNativeLookups() {
+        HtmlUnitDriver htmlUnitDriver = new HtmlUnitDriver(true);
+        try {
+            htmlUnitDriver.get("data:text/html,<form>"
+                    + "<input id='terms' type='checkbox'/><input name='terms' type='radio'/>"
+                    + "<input name='terms'/><input id='q\\&quot;x' type='password'/>"
+                    + "<textarea name='terms'></textarea></form>");
+            String[][] lookups = { { "terms", "checkbox" }, { "identifier:terms", "text field" },
+                    { "name:terms", null }, { "css:input", "radio button" }, { "tag:input", "text field" },
+                    { "//input[@name='terms']", "text field" }, { "id:q\\\"x", "text field" } };
+            for (String[] lookup : lookups) {
+                List<WebElement> expected = ElementFinder.find(htmlUnitDriver, lookup[0], lookup[1]);
+                ElementFinder.setJavaScriptResolver(true);
+                List<WebElement> actual = ElementFinder.find(htmlUnitDriver, lookup[0], lookup[1]);
+                ElementFinder.setJavaScriptResolver(false);
+                assertEquals(lookup[0], expected, actual);
+            }
+        } finally {
+            htmlUnitDriver.quit();
+        }
+    }
+
+    @Test
+    public void testJavaScriptResolverFallsBackWithoutJavaScript() {
+        HtmlUnitDriver htmlUnitDriver = new HtmlUnitDriver(false);
+        try {
+            htmlUnitDriver.get("data:text/html,<input id='terms' type='checkbox'/>");
+            ElementFinder.setJavaScriptResolver(true);
+            assertEquals(1, ElementFinder.find(htmlUnitDriver, "id:terms", "checkbox").size());
+        } finally {
+            htmlUnitDriver.quit();
+        }
+    }
+
+    @Test
+    public void testJavaScriptResolverNeedsOneCommand() {
+        WebDriver javaScriptDriver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+        when(((JavascriptExecutor) javaScriptDriver).executeScript(anyString(), any(Object[].class))).thenReturn(new ArrayList<>());
+        ElementFinder.setJavaScriptResolver(true);
+        ElementFinder.find(javaScriptDriver, "identifier:terms", "checkbox");
+        verify((JavascriptExecutor) javaScriptDriver, times(1)).executeScript(anyString(), any(Object[].class));
+        verify(javaScriptDriver, never()).findElements(any(By.class));
+    }
+}
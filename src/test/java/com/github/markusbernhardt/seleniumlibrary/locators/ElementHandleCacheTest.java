@@ -0,0 +1,77 @@
+package com.github.markusbernhardt.seleniumlibrary.locators;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+public class ElementHandleCacheTest {
+
+    private HtmlUnitDriver webDriver;
+
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @Before
+    public void initialize() {
+        webDriver = new HtmlUnitDriver(true);
+        webDriver.get("data:text/html,<div id='name'>Alice</div>");
+        ElementHandleCache.setEnabled(true);
+        ElementHandleCache.reset(webDriver);
+    }
+
+    @After
+    public void cleanup() {
+        ElementHandleCache.setEnabled(false);
+        webDriver.quit();
+    }
+
+    private WebElement find(String locator) {
+        return ElementHandleCache.find(webDriver, locator, null, () -> {
+            lookups.incrementAndGet();
+            return ElementFinder.find(webDriver, locator).stream().findFirst().orElse(null);
+        });
+    }
+
+    @Test
+    public void testElementsAreReusedPerFrame() {
+        WebElement element = find("name");
+        assertSame(element, find("name"));
+        assertEquals(1, lookups.get());
+
+        // Only recorded, the page has no frames
+        ElementHandleCache.selectFrame(webDriver, "frame");
+        find("name");
+        find("name");
+        assertEquals(2, lookups.get());
+
+        ElementHandleCache.selectTopFrame(webDriver);
+        assertSame(element, find("name"));
+        ElementHandleCache.reset(webDriver);
+        find("name");
+        assertEquals(3, lookups.get());
+    }
+
+    @Test
+    public void testNothingIsCachedInUnknownFrame() {
+        ElementHandleCache.setEnabled(false);
+        ElementHandleCache.setEnabled(true);
+        find("name");
+        find("name");
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testRemovedElementsAreLookedUpAgain() {
+        assertEquals("Alice", find("name").getText());
+        webDriver.executeScript("var old = document.getElementById('name'), div = document.createElement('div');"
+                + "div.id = 'name'; div.textContent = 'Bob'; old.parentNode.replaceChild(div, old);");
+        assertEquals("Bob", find("name").getText());
+        assertEquals("Bob", find("name").getText());
+        assertEquals(2, lookups.get());
+    }
+}
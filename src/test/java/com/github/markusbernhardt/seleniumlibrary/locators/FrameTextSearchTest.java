@@ -0,0 +1,84 @@
+package com.github.markusbernhardt.seleniumlibrary.locators;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+public class FrameTextSearchTest {
+
+    private static final String PAGE = "data:text/html,<p>Top</p><iframe src='data:text/html,<p>Child</p>"
+            + "<iframe src=\"data:text/html,<p>Grandchild</p>\"></iframe>'></iframe>";
+
+    private HtmlUnitDriver webDriver;
+
+    @Before
+    public void initialize() {
+        webDriver = new HtmlUnitDriver(true);
+        webDriver.get(PAGE);
+    }
+
+    @After
+    public void cleanup() {
+        webDriver.quit();
+    }
+
+    @Test
+    public void testSearchesNestedFrames() {
+        assertEquals(Boolean.TRUE, FrameTextSearch.pageContains(webDriver, "Top"));
+        assertEquals(Boolean.TRUE, FrameTextSearch.pageContains(webDriver, "Child"));
+        assertEquals(Boolean.TRUE, FrameTextSearch.pageContains(webDriver, "Grandchild"));
+        assertEquals(Boolean.FALSE, FrameTextSearch.pageContains(webDriver, "Nowhere"));
+    }
+
+    @Test
+    public void testLeavesTopDocumentSelected() {
+        webDriver.switchTo().frame(0);
+        assertEquals(Boolean.TRUE, FrameTextSearch.pageContains(webDriver, "Top"));
+        assertEquals(1, webDriver.findElements(By.tagName("iframe")).size());
+        assertEquals("Top", webDriver.findElement(By.tagName("p")).getText());
+    }
+
+    @Test
+    public void testSwitchesToInaccessibleFrames() {
+        WebDriver remote = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+        WebDriver.TargetLocator targetLocator = mock(WebDriver.TargetLocator.class);
+        WebElement frame = mock(WebElement.class);
+        when(remote.switchTo()).thenReturn(targetLocator);
+        when(remote.findElements(any(By.class))).thenReturn(Arrays.asList(mock(WebElement.class), frame));
+        when(((JavascriptExecutor) remote).executeScript(anyString(), any()))
+                .thenReturn(Collections.singletonList(Collections.singletonList(1L)), true);
+
+        assertEquals(Boolean.TRUE, FrameTextSearch.pageContains(remote, "Text"));
+        InOrder inOrder = inOrder(targetLocator, remote);
+        inOrder.verify(targetLocator).defaultContent();
+        inOrder.verify((JavascriptExecutor) remote).executeScript(FrameTextSearch.SEARCH_SCRIPT, "Text");
+        inOrder.verify(targetLocator).frame(frame);
+        inOrder.verify((JavascriptExecutor) remote).executeScript(FrameTextSearch.SEARCH_SCRIPT, "Text");
+        inOrder.verify(targetLocator).defaultContent();
+    }
+
+    @Test
+    public void testNoJavaScript() {
+        HtmlUnitDriver withoutJavaScript = new HtmlUnitDriver(false);
+        try {
+            withoutJavaScript.get(PAGE);
+            assertNull(FrameTextSearch.pageContains(withoutJavaScript, "Top"));
+        } finally {
+            withoutJavaScript.quit();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.markusbernhardt.seleniumlibrary.locators;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+public class PageTextSnapshotTest {
+
+    private static final String PAGE = "data:text/html,<p>Top</p><iframe src='data:text/html,<p>Child</p>"
+            + "<iframe src=\"data:text/html,<p>Grandchild</p>\"></iframe>'></iframe>";
+
+    private HtmlUnitDriver webDriver;
+
+    @Before
+    public void initialize() {
+        webDriver = new HtmlUnitDriver(true);
+        webDriver.get(PAGE);
+    }
+
+    @After
+    public void cleanup() {
+        PageTextSnapshot.setEnabled(false);
+        webDriver.quit();
+    }
+
+    @Test
+    public void testSnapshotMatchesSearch() {
+        PageTextSnapshot snapshot = PageTextSnapshot.take(webDriver);
+        for (String text : Arrays.asList("Top", "Child", "Grandchild", "Nowhere", "")) {
+            assertEquals(text, FrameTextSearch.pageContains(webDriver, text), snapshot.contains(text));
+        }
+        assertTrue(snapshot.documentContains("Top"));
+        assertFalse(snapshot.documentContains("Child"));
+        assertTrue(snapshot.getBlockedFrames().isEmpty());
+    }
+
+    @Test
+    public void testEnabledSnapshotAnswersPageSearch() {
+        PageTextSnapshot.setEnabled(true);
+        assertEquals(Boolean.TRUE, FrameTextSearch.pageContains(webDriver, "Grandchild"));
+        webDriver.executeScript("document.querySelector('p').textContent = 'Changed';");
+        // HtmlUnit cannot report changes, so the text is read again
+        assertEquals(Boolean.FALSE, FrameTextSearch.pageContains(webDriver, "Top"));
+        assertEquals(Boolean.TRUE, FrameTextSearch.pageContains(webDriver, "Changed"));
+    }
+
+    @Test
+    public void testUnchangedDocumentsReuseSnapshot() {
+        WebDriver cachingDriver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+        when(((JavascriptExecutor) cachingDriver).executeScript(anyString(), any(Object[].class))).thenReturn(
+                Arrays.asList("token", "token:1 frame:4", Arrays.asList("Top", "Child"), Collections.emptyList()),
+                "token");
+
+        PageTextSnapshot snapshot = PageTextSnapshot.take(cachingDriver);
+        assertTrue(snapshot.contains("Child"));
+        assertSame(snapshot, PageTextSnapshot.take(cachingDriver));
+
+        ArgumentCaptor<Object[]> arguments = ArgumentCaptor.forClass(Object[].class);
+        verify((JavascriptExecutor) cachingDriver, times(2)).executeScript(anyString(), arguments.capture());
+        assertEquals(Collections.emptyMap(), arguments.getAllValues().get(0)[0]);
+        assertEquals(Collections.singletonMap("token", "token:1 frame:4"), arguments.getAllValues().get(1)[0]);
+    }
+}
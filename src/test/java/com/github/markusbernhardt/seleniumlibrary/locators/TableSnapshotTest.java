@@ -0,0 +1,135 @@
+package com.github.markusbernhardt.seleniumlibrary.locators;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+public class TableSnapshotTest {
+
+    private static final String PAGE = "data:text/html,<table id='data'><caption>People</caption>"
+            + "<thead><tr><th>Name</th><th>Age</th><th>City</th></tr></thead>"
+            + "<tbody><tr><td>Alice</td><td>30</td><td>Berlin</td></tr>"
+            + "<tr><th>Bob</th><td colspan='2'>unknown</td></tr></tbody>"
+            + "<tfoot><tr><td>Total</td><td>2</td><td></td></tr></tfoot></table>"
+            + "<table id='other'><tr><td>Carol</td></tr></table><div id='div'>Alice</div>";
+
+    private HtmlUnitDriver webDriver;
+
+    @Before
+    public void initialize() {
+        webDriver = new HtmlUnitDriver(true);
+        webDriver.get(PAGE);
+    }
+
+    @After
+    public void cleanup() {
+        webDriver.quit();
+    }
+
+    @Test
+    public void testSnapshotMatchesElementLookup() {
+        for (String locator : Arrays.asList("data", "css:table#data", "xpath://table[@id='data']", "other")) {
+            TableSnapshot snapshot = TableSnapshot.take(webDriver, locator).get(0);
+            for (String text : Arrays.asList("Alice", "Bob", "City", "Total", "2", "unknown", "Carol", "Alice 30")) {
+                String message = locator + " / " + text;
+                assertEquals(message, TableElementFinder.findByContent(webDriver, locator, text) != null,
+                        snapshot.contains(text));
+                assertEquals(message, TableElementFinder.findByHeader(webDriver, locator, text) != null,
+                        snapshot.headerContains(text));
+                assertEquals(message, TableElementFinder.findByFooter(webDriver, locator, text) != null,
+                        snapshot.footerContains(text));
+                for (int i = 1; i <= 3; i++) {
+                    // Rows are matched as a whole like by css, xpath only matches their cells
+                    if (!locator.startsWith("xpath:") || !text.contains(" ")) {
+                        assertEquals(message + " / " + i,
+                                TableElementFinder.findByRow(webDriver, locator, i, text) != null,
+                                snapshot.rowContains(i, text));
+                    }
+                    assertEquals(message + " / " + i, TableElementFinder.findByCol(webDriver, locator, i, text) != null,
+                            snapshot.columnContains(i, text));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCellsAndData() {
+        TableSnapshot snapshot = TableSnapshot.take(webDriver, "data").get(0);
+        assertEquals("People", snapshot.getCaption());
+        assertEquals("Name", snapshot.getCell(1, 1));
+        assertEquals("30", snapshot.getCell(2, 2));
+        // Header cells are counted first
+        assertEquals("Bob", snapshot.getCell(3, 1));
+        assertEquals("unknown", snapshot.getCell(3, 2));
+        assertNull(snapshot.getCell(3, 3));
+        assertNull(snapshot.getCell(5, 1));
+        assertTrue(snapshot.contains("Alice 30"));
+        assertFalse(snapshot.contains("Carol"));
+
+        List<List<String>> body = snapshot.getData(TableSnapshot.toSections("body"));
+        assertEquals(Arrays.asList(Arrays.asList("Alice", "30", "Berlin"), Arrays.asList("Bob", "unknown", "")),
+                body);
+        assertEquals(4, snapshot.getData(TableSnapshot.toSections("all")).size());
+        assertNull(TableSnapshot.toSections("caption"));
+    }
+
+    @Test
+    public void testReadByElementsMatchesScript() {
+        TableSnapshot snapshot = TableSnapshot.take(webDriver, "data").get(0);
+        TableSnapshot read = TableSnapshot.read(TableElementFinder.find(webDriver, "data"));
+        assertEquals(snapshot.getData(TableSnapshot.toSections("all")), read.getData(TableSnapshot.toSections("all")));
+    }
+
+    @Test
+    public void testUnchangedDocumentReusesSnapshots() {
+        WebDriver cachingDriver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+        List<Object> table = Arrays.asList("", Arrays.asList(Arrays.asList("tbody", 0L, Arrays.asList("Alice"),
+                Arrays.asList(false), Arrays.asList(1L))));
+        when(((JavascriptExecutor) cachingDriver).executeScript(anyString(), any(Object[].class)))
+                .thenReturn(Arrays.asList("token", 3L, Arrays.asList(table)), "token");
+
+        List<TableSnapshot> snapshots = TableSnapshot.take(cachingDriver, "data");
+        assertEquals("Alice", snapshots.get(0).getCell(1, 1));
+        assertSame(snapshots, TableSnapshot.take(cachingDriver, "data"));
+
+        ArgumentCaptor<Object[]> arguments = ArgumentCaptor.forClass(Object[].class);
+        verify((JavascriptExecutor) cachingDriver, times(2)).executeScript(anyString(), arguments.capture());
+        assertEquals(Collections.emptyMap(), arguments.getAllValues().get(0)[5]);
+        assertEquals(Collections.singletonMap("token", 3L), arguments.getAllValues().get(1)[5]);
+    }
+
+    @Test
+    public void testSnapshotsAreNotCachedWithoutWorkingMutationObserver() {
+        List<TableSnapshot> snapshots = TableSnapshot.take(webDriver, "data");
+        webDriver.executeScript("document.querySelector('#data td').textContent = 'Alicia';");
+        assertNotSame(snapshots, TableSnapshot.take(webDriver, "data"));
+        assertEquals("Alicia", TableSnapshot.take(webDriver, "data").get(0).getCell(2, 1));
+    }
+
+    @Test
+    public void testNoTableOrNoJavaScript() {
+        assertTrue(TableSnapshot.take(webDriver, "missing").isEmpty());
+        assertNull(TableSnapshot.take(webDriver, "css:div#div"));
+
+        HtmlUnitDriver withoutJavaScript = new HtmlUnitDriver(false);
+        try {
+            withoutJavaScript.get(PAGE);
+            assertNull(TableSnapshot.take(withoutJavaScript, "data"));
+        } finally {
+            withoutJavaScript.quit();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.SessionId;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+public class CommandMetricsTest {
+
+    private CommandMetrics metrics;
+
+    private CommandExecutor delegate;
+
+    private InstrumentedCommandExecutor executor;
+
+    @Before
+    public void initialize() throws Exception {
+        metrics = new CommandMetrics();
+        delegate = mock(CommandExecutor.class);
+        when(delegate.execute(any())).thenReturn(new Response());
+        executor = new InstrumentedCommandExecutor(delegate, metrics);
+    }
+
+    @After
+    public void cleanup() {
+        CommandMetrics.setCurrentKeyword(null);
+    }
+
+    private static Command command(String sessionId) {
+        return new Command(new SessionId(sessionId), DriverCommand.GET_TITLE, Collections.emptyMap());
+    }
+
+    @Test
+    public void testCommandsAreAttributedToKeywordAndSession() throws Exception {
+        CommandMetrics.setCurrentKeyword("Get Title");
+        executor.execute(command("a"));
+        executor.execute(command("b"));
+        CommandMetrics.setCurrentKeyword(null);
+        executor.execute(command("a"));
+
+        verify(delegate, times(3)).execute(any());
+        assertEquals(3, metrics.getCommands());
+        Map<String, Long> byKeyword = metrics.getCommandsByKeyword();
+        assertEquals(Long.valueOf(2), byKeyword.get("Get Title"));
+        assertEquals(Long.valueOf(1), byKeyword.get(CommandMetrics.NO_KEYWORD));
+        assertEquals(Long.valueOf(2), metrics.getCommandsBySession().get("a"));
+        assertEquals(2L, metrics.getStatistics(true).get("a").get("commands"));
+    }
+
+    @Test
+    public void testFailedCommandsAreCounted() throws Exception {
+        when(delegate.execute(any())).thenThrow(new IOException("unreachable"));
+        try {
+            executor.execute(command("a"));
+            fail("The failure must be passed on");
+        } catch (IOException e) {
+            assertEquals("unreachable", e.getMessage());
+        }
+        assertEquals(1, metrics.getCommands());
+    }
+
+    @Test
+    public void testByteCounterCountsRequestAndResponse() throws Exception {
+        when(delegate.execute(any())).thenAnswer(invocation -> {
+            HttpRequest request = new HttpRequest(HttpMethod.POST, "/session/a/url");
+            request.setContent(Contents.utf8String("{\"url\":\"about:blank\"}"));
+            HttpClient client = mock(HttpClient.class);
+            HttpResponse response = new HttpResponse();
+            response.setContent(Contents.utf8String("{\"value\":null}"));
+            when(client.execute(request)).thenReturn(response);
+            CommandMetrics.countBytes(config -> client).createClient(ClientConfig.defaultConfig()).execute(request);
+            return new Response();
+        });
+        executor.execute(command("a"));
+
+        assertEquals(21, metrics.getBytesSent());
+        assertEquals(14, metrics.getBytesReceived());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        executor.execute(command("a"));
+        metrics.reset();
+        assertEquals(0, metrics.getCommands());
+        assertTrue(metrics.getCommandsBySession().isEmpty());
+    }
+}
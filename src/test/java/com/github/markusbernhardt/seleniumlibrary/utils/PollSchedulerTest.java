@@ -0,0 +1,64 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.markusbernhardt.seleniumlibrary.SeleniumLibraryNonFatalException;
+
+public class PollSchedulerTest {
+
+    @Test
+    public void testFixedDefaults() {
+        PollScheduler scheduler = PollScheduler.create("Fixed", -1, -1, true);
+        assertEquals(200, scheduler.nextDelay(1));
+        assertEquals(200, scheduler.nextDelay(100));
+        assertTrue(scheduler.isImmediateFirstCheck());
+    }
+
+    @Test
+    public void testBackoffStaysWithinBounds() {
+        PollScheduler scheduler = PollScheduler.create("backoff", 50, 1000, false);
+        assertFalse(scheduler.isImmediateFirstCheck());
+        for (int polls = 0; polls < 100; polls++) {
+            long delay = scheduler.nextDelay(polls);
+            assertTrue(delay >= 50);
+            assertTrue(delay <= 1000);
+        }
+        assertTrue(scheduler.nextDelay(10) >= 500);
+        assertTrue(scheduler.nextDelay(1) <= 50);
+    }
+
+    @Test
+    public void testLargeBackoffIntervalsDoNotOverflow() {
+        BackoffPollScheduler scheduler = new BackoffPollScheduler(2000, 60000, true);
+        for (int polls : new int[] { 1, 5, 6, 30, 31, 64, Integer.MAX_VALUE }) {
+            long delay = scheduler.nextDelay(polls);
+            assertTrue(String.valueOf(polls), delay >= 2000 && delay <= 60000);
+        }
+        assertTrue(scheduler.nextDelay(64) >= 30000);
+        BackoffPollScheduler huge = new BackoffPollScheduler(Long.MAX_VALUE / 4, Long.MAX_VALUE, true);
+        assertTrue(huge.nextDelay(40) >= Long.MAX_VALUE / 4);
+    }
+
+    @Test
+    public void testSettingsCanBeRestored() {
+        for (PollScheduler scheduler : new PollScheduler[] { PollScheduler.create("fixed", 300, -1, true),
+                PollScheduler.create("backoff", 20, 900, false) }) {
+            PollScheduler restored = PollScheduler.create(scheduler.toString(), -1, -1, true);
+            assertEquals(scheduler.toString(), restored.toString());
+            assertEquals(scheduler.isImmediateFirstCheck(), restored.isImmediateFirstCheck());
+        }
+        assertEquals(300, PollScheduler.create("fixed 300ms", -1, -1, true).nextDelay(5));
+    }
+
+    @Test(expected = SeleniumLibraryNonFatalException.class)
+    public void testZeroIntervalIsRejected() {
+        PollScheduler.create("fixed", 0, -1, true);
+    }
+
+    @Test(expected = SeleniumLibraryNonFatalException.class)
+    public void testUnknownStrategy() {
+        PollScheduler.create("random", -1, -1, true);
+    }
+}
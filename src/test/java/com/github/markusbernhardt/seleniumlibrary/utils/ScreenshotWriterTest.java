@@ -0,0 +1,125 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ScreenshotWriterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ScreenshotWriter writer;
+
+	@Before
+	public void initialize() {
+		writer = new ScreenshotWriter();
+	}
+
+	@After
+	public void cleanup() {
+		writer.close();
+	}
+
+	@Test
+	public void testAsynchronousWritesAreCompleteAfterFlush() throws IOException {
+		writer.configure(true, 0, false);
+		byte[] png = png(40, 20, 0xff0000);
+		for (int i = 1; i <= 20; i++) {
+			writer.write(new File(folder.getRoot(), "shots/shot-" + i + ".png"), png, true);
+		}
+		writer.flush();
+		assertEquals(20, writer.getWritten());
+		assertEquals(20, folder.getRoot().toPath().resolve("shots").toFile().list().length);
+		assertTrue(writer.pollFailures().isEmpty());
+	}
+
+	@Test
+	public void testConsecutiveDuplicatesLinkPreviousFile() throws IOException {
+		writer.configure(false, 0, true);
+		File first = new File(folder.getRoot(), "shot-1.png");
+		File second = new File(folder.getRoot(), "shot-2.png");
+		File third = new File(folder.getRoot(), "shot-3.png");
+		assertEquals(first, writer.write(first, png(10, 10, 0xff0000), true));
+		assertEquals(first, writer.write(second, png(10, 10, 0xff0000), true));
+		assertEquals(third, writer.write(third, png(10, 10, 0x00ff00), true));
+		assertFalse(second.exists());
+		assertEquals(1, writer.getSkipped());
+
+		File named = new File(folder.getRoot(), "named.png");
+		assertEquals(named, writer.write(named, png(10, 10, 0x00ff00), false));
+		assertTrue(named.exists());
+	}
+
+	@Test
+	public void testDuplicatesOfFailedWritesAreWritten() throws IOException {
+		File blocker = folder.newFile("blocker");
+		File failed = new File(blocker, "shot-1.png");
+		File second = new File(folder.getRoot(), "shot-2.png");
+		for (boolean asynchronous : new boolean[] { false, true }) {
+			writer.configure(asynchronous, 0, true);
+			assertEquals(failed, writer.write(failed, png(10, 10, 0xff0000), true));
+			assertEquals(second, writer.write(second, png(10, 10, 0xff0000), true));
+			writer.flush();
+			assertTrue(second.delete());
+		}
+		assertEquals(0, writer.getSkipped());
+		assertEquals(2, writer.pollFailures().size());
+	}
+
+	@Test
+	public void testWideScreenshotsAreDownscaled() throws IOException {
+		writer.configure(false, 100, false);
+		File file = new File(folder.getRoot(), "wide.png");
+		writer.write(file, png(400, 200, 0x0000ff), false);
+		BufferedImage image = ImageIO.read(file);
+		assertEquals(100, image.getWidth());
+		assertEquals(50, image.getHeight());
+	}
+
+	@Test
+	public void testCropClipsToImage() throws IOException {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(
+				ScreenshotWriter.crop(png(100, 80, 0xff0000), 60, 50, 100, 10)));
+		assertEquals(40, image.getWidth());
+		assertEquals(10, image.getHeight());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCropOutsideImageFails() throws IOException {
+		ScreenshotWriter.crop(png(100, 80, 0xff0000), 100, 0, 10, 10);
+	}
+
+	@Test
+	public void testFailuresAreReported() throws IOException {
+		writer.configure(true, 0, false);
+		File blocker = folder.newFile("blocker");
+		writer.write(new File(blocker, "shot.png"), png(10, 10, 0), false);
+		writer.flush();
+		assertEquals(1, writer.pollFailures().size());
+	}
+
+	private static byte[] png(int width, int height, int rgb) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				image.setRGB(x, y, rgb);
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+}
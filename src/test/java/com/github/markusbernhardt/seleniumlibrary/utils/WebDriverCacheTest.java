@@ -0,0 +1,103 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+public class WebDriverCacheTest {
+
+    private WebDriverCache webDriverCache;
+
+    @Before
+    public void initialize() {
+        webDriverCache = new WebDriverCache();
+    }
+
+    @Test
+    public void testCloseSwitchesToLastUsed() {
+        WebDriver first = mock(WebDriver.class);
+        WebDriver second = mock(WebDriver.class);
+        WebDriver third = mock(WebDriver.class);
+        assertEquals("1", webDriverCache.register(first, "first"));
+        assertEquals("2", webDriverCache.register(second, null));
+        assertEquals("3", webDriverCache.register(third, null));
+        webDriverCache.switchBrowser("first");
+        webDriverCache.switchBrowser("3");
+        webDriverCache.close();
+        verify(third).quit();
+        assertSame(first, webDriverCache.getCurrent());
+        assertEquals("3", webDriverCache.register(third, null));
+    }
+
+    @Test
+    public void testThreadsShareContextUnlessDetached() throws InterruptedException {
+        WebDriver main = mock(WebDriver.class);
+        webDriverCache.register(main, null);
+
+        AtomicReference<WebDriver> inherited = new AtomicReference<>();
+        Thread child = new Thread(() -> inherited.set(webDriverCache.getCurrent()));
+        child.start();
+        child.join();
+        assertSame(main, inherited.get());
+
+        WebDriver worker = mock(WebDriver.class);
+        AtomicReference<WebDriver> detached = new AtomicReference<>();
+        Thread parallel = new Thread(() -> {
+            webDriverCache.detachSessionContext();
+            detached.set(webDriverCache.getCurrent());
+            webDriverCache.register(worker, "worker");
+        });
+        parallel.start();
+        parallel.join();
+        assertNull(detached.get());
+        assertSame(main, webDriverCache.getCurrent());
+        assertEquals(2, webDriverCache.getWebDrivers().size());
+    }
+
+    @Test
+    public void testCloseAllQuitsEveryBrowser() {
+        WebDriver failing = mock(WebDriver.class);
+        WebDriver other = mock(WebDriver.class);
+        doThrow(new WebDriverException("gone")).when(failing).quit();
+        webDriverCache.register(failing, null);
+        webDriverCache.register(other, null);
+        try {
+            webDriverCache.closeAll();
+            fail();
+        } catch (WebDriverException e) {
+            // expected
+        }
+        verify(other).quit();
+        assertNull(webDriverCache.getCurrent());
+        assertTrue(webDriverCache.getWebDrivers().isEmpty());
+        assertEquals("1", webDriverCache.register(other, null));
+    }
+
+    @Test
+    public void testCloseAllKeepsBrowsersOfOtherContexts() throws InterruptedException {
+        WebDriver main = mock(WebDriver.class);
+        webDriverCache.register(main, null);
+
+        WebDriver worker = mock(WebDriver.class);
+        Thread parallel = new Thread(() -> {
+            webDriverCache.detachSessionContext();
+            webDriverCache.register(worker, "worker");
+        });
+        parallel.start();
+        parallel.join();
+
+        webDriverCache.closeAll();
+        verify(main).quit();
+        verify(worker, never()).quit();
+        assertNull(webDriverCache.getCurrent());
+        assertEquals(1, webDriverCache.getWebDrivers().size());
+        webDriverCache.switchBrowser("worker");
+        assertSame(worker, webDriverCache.getCurrent());
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.markusbernhardt.seleniumlibrary.utils;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.HasCdp;
+
+public class WebDriverPoolTest {
+
+    private static final List<String> KEY = Arrays.asList("firefox", null, null, null);
+
+    private WebDriverPool pool;
+
+    @Before
+    public void initialize() {
+        pool = new WebDriverPool(1, 0, 2);
+    }
+
+    @After
+    public void cleanup() {
+        pool.shutdown();
+    }
+
+    private static WebDriver mockWebDriver() {
+        WebDriver webDriver = mock(WebDriver.class, RETURNS_DEEP_STUBS);
+        when(webDriver.getWindowHandles()).thenReturn(Collections.singleton("main"));
+        return webDriver;
+    }
+
+    @Test
+    public void testReleasedSessionIsResetAndReused() throws Exception {
+        WebDriver webDriver = mockWebDriver();
+        assertSame(webDriver, pool.acquire(KEY, () -> webDriver));
+        assertTrue(pool.release(webDriver));
+        verify(webDriver).get("about:blank");
+        verify(webDriver, never()).quit();
+
+        assertSame(webDriver, pool.acquire(KEY, () -> {
+            throw new AssertionError("launched instead of reused");
+        }));
+        assertEquals(1, pool.getLaunched());
+        assertEquals(1, pool.getReused());
+    }
+
+    @Test
+    public void testPrewarmEvictsSessionsThatCannotBeReset() throws Exception {
+        WebDriver broken = mockWebDriver();
+        doThrow(new WebDriverException("crashed")).when(broken).get("about:blank");
+        pool.prewarm(KEY, 1, () -> broken);
+        verify(broken).quit();
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(1, pool.getEvicted());
+
+        WebDriver webDriver = mockWebDriver();
+        pool.prewarm(KEY, 3, () -> webDriver);
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void testSessionEvictedAfterMaxUses() throws Exception {
+        WebDriver webDriver = mockWebDriver();
+        pool.acquire(KEY, () -> webDriver);
+        pool.release(webDriver);
+        pool.acquire(KEY, () -> webDriver);
+        assertTrue(pool.release(webDriver));
+        verify(webDriver).quit();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testUnhealthySessionIsReplaced() throws Exception {
+        WebDriver broken = mockWebDriver();
+        pool.acquire(KEY, () -> broken);
+        pool.release(broken);
+        when(broken.getWindowHandles()).thenThrow(new RuntimeException("session gone"));
+
+        WebDriver fresh = mockWebDriver();
+        assertSame(fresh, pool.acquire(KEY, () -> fresh));
+        assertEquals(1, pool.getEvicted());
+    }
+
+    @Test
+    public void testForeignSessionIsNotReleased() {
+        assertFalse(pool.release(mockWebDriver()));
+    }
+
+    @Test
+    public void testDevToolsClearAllOrigins() throws Exception {
+        WebDriver webDriver = mock(WebDriver.class, withSettings().extraInterfaces(HasCdp.class)
+                .defaultAnswer(RETURNS_DEEP_STUBS));
+        when(webDriver.getWindowHandles()).thenReturn(Collections.singleton("main"));
+        when(webDriver.getCurrentUrl()).thenReturn("https://app.example/home");
+        HasCdp cdp = (HasCdp) webDriver;
+        when(cdp.executeCdpCommand(eq("Network.getAllCookies"), anyMap())).thenReturn(
+                Collections.singletonMap("cookies", Arrays.asList(Collections.singletonMap("domain", ".idp.example"))));
+        pool.acquire(KEY, () -> webDriver);
+        assertTrue(pool.release(webDriver));
+
+        for (String origin : Arrays.asList("https://app.example", "https://idp.example", "http://idp.example")) {
+            verify(cdp).executeCdpCommand(eq("Storage.clearDataForOrigin"),
+                    argThat((Map<String, Object> parameters) -> origin.equals(parameters.get("origin"))));
+        }
+        verify(cdp).executeCdpCommand(eq("Network.clearBrowserCookies"), anyMap());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void testSessionWithSeveralOriginsIsEvicted() throws Exception {
+        WebDriver webDriver = mockWebDriver();
+        when(webDriver.getWindowHandles()).thenReturn(new LinkedHashSet<>(Arrays.asList("main", "popup")));
+        when(webDriver.getCurrentUrl()).thenReturn("https://idp.example/login", "https://app.example/");
+        pool.acquire(KEY, () -> webDriver);
+        assertTrue(pool.release(webDriver));
+        verify(webDriver).quit();
+        assertEquals(0, pool.getIdleCount());
+    }
+}